@@ -0,0 +1,75 @@
+package com.example.shoppinglist;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+// This class shows a backup read a page at a time (see PagedItemList), read-only.
+//
+// Rows whose page is not loaded yet are bound as empty placeholders of the same height, so
+// scrolling never waits for the file: when the page arrives, only its rows are bound again.
+// The RecyclerView reports which rows it shows, which decides the pages kept in memory.
+public class ArchiveAdapter extends RecyclerView.Adapter<ArchiveAdapter.ViewHolder> {
+
+    private final PagedItemList items;
+    private final RowPalette palette;
+
+    public ArchiveAdapter(Context context, PagedItemList items) {
+        this.items = items;
+        this.palette = RowPalette.resolve(context);
+        items.setListener(this::notifyItemRangeChanged);
+    }
+
+    // Shows the backup in the given RecyclerView (with a LinearLayoutManager) and keeps the pages
+    // of the rows on screen, and the ones around them, loaded. RecyclerView also reports a scroll
+    // after each layout, so the first screen is loaded the same way.
+    public void attachTo(RecyclerView recyclerView) {
+        LinearLayoutManager layout = (LinearLayoutManager) recyclerView.getLayoutManager();
+        recyclerView.setAdapter(this);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                items.setVisibleRange(layout.findFirstVisibleItemPosition(),
+                        layout.findLastVisibleItemPosition());
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.archive_item, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Item item = items.get(position);
+        if (item == null) {
+            holder.text.setText(null);
+            holder.itemView.setBackgroundColor(palette.colorFor(Item.ImportanceLevel.NORMAL, position));
+        } else {
+            holder.text.setText(item.getText());
+            holder.itemView.setBackgroundColor(palette.colorFor(item.getImportance(), position));
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView text;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            text = itemView.findViewById(R.id.archiveItemText);
+        }
+    }
+}
@@ -1,59 +1,456 @@
 package com.example.shoppinglist;
 
-import android.content.Context;
-import androidx.core.content.ContextCompat;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.EditText;
+import android.widget.AutoCompleteTextView;
 import android.widget.ImageButton;
+import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 // This class is an adapter for the RecyclerView to display a list of items.
 // This is a custom RecyclerView.Adapter class specifically for the Item data model.
-public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder> {
-    // List of items that will be displayed in the RecyclerView.
-    private List<Item> items;
-
-    // Context is used for various Android framework operations, like inflating views.
-    // Context is an Android concept; it's a handle to the system which allows
-    // operations like accessing resources, launching activities, and so on.
-    private Context context;
-
-    // Constructor for the adapter. It takes in a context and the list of items.
-    public ItemAdapter(Context context, List<Item> items) {
-        this.context = context;
-        this.items = items;
+//
+// The adapter works from immutable list snapshots published by ItemListModel (see submitList()).
+// The old and the new snapshot are compared on a background thread and only the
+// insert/remove/move/change events that are really needed are sent, so the UI thread never has
+// to redraw the whole list. Changes whose rows are known up front (a section collapsed, the
+// startup preview replaced) skip the comparison, see submitChange().
+//
+// The rows are a SectionedItemList: items, and a header (a second view type) before every
+// importance section, which hides or shows the section when tapped.
+//
+// The adapter keeps no reference to an activity: what the user does in a row is reported
+// through the Callback, and views are created with the context of the RecyclerView showing
+// them. So the same adapter can be attached again after the activity has been recreated.
+//
+// The adapter measures itself into PerfStats: inflations, full and partial binds, how many
+// binds each user action causes, how long a submitted list takes to show up, and every
+// notification the RecyclerView gets, by kind. A stray notifyDataSetChanged() shows up as
+// "adapter.full_invalidations" there.
+public class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    // Receives the changes the user makes in the rows, by item id.
+    public interface Callback {
+        void addItem();
+        void removeItem(long id);
+        void setItemImportance(long id, Item.ImportanceLevel importance);
+        // A text with several lines is split into one item per line.
+        void setItemText(long id, String text);
+        void setItemOptionsExpanded(long id, boolean expanded);
+        // See SectionedItemList for the sections.
+        void setSectionCollapsed(int section, boolean collapsed);
+    }
+
+    // View types of the rows. Items are 0, the default, like in the RecyclerView pool.
+    static final int VIEW_TYPE_ITEM = 0;
+    static final int VIEW_TYPE_HEADER = 1;
+
+    // Compares snapshots for all adapters, like the executor of AsyncListDiffer.
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ItemAdapter-diff");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Typed text is saved to the model once the user stops typing for this long
+    // (or when the row loses focus), instead of on every keystroke.
+    static final long TEXT_COMMIT_DELAY_MS = 300;
+
+    // Tells the background diff how to compare two items: the same id means the same row,
+    // and the row only has to be redrawn when something visible has changed.
+    private static final DiffUtil.ItemCallback<Item> DIFF_CALLBACK = new DiffUtil.ItemCallback<Item>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return oldItem.hasSameContents(newItem);
+        }
+
+        // The payload tells which part of the row has to be redrawn (see ItemChanges).
+        // With a payload, the item animator also reuses the same row instead of cross-fading
+        // into a new one, so an EditText being typed into keeps its focus.
+        @Nullable
+        @Override
+        public Object getChangePayload(@NonNull Item oldItem, @NonNull Item newItem) {
+            // A header is simply bound again.
+            return oldItem instanceof SectionHeader ? null : ItemChanges.between(oldItem, newItem);
+        }
+    };
+
+    // The rows shown, and the last list handed over (which differs while its diff is running).
+    // A diff that finishes after a newer list was handed over is dropped, like in ListAdapter.
+    private List<Item> currentList = Collections.emptyList();
+    private List<Item> submittedList = currentList;
+    private int generation;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Callback callback;
+
+    private final Histogram createTimes;
+    private final Histogram bindTimes;
+    private final Histogram partialBindTimes;
+    private final Histogram bindsPerAction;
+    private final Histogram submitTimes;
+
+    // Binds since the last user action, or -1 before the first one. Recorded into
+    // bindsPerAction when the next action starts.
+    private long bindsSinceAction = -1;
+
+    // Earlier purchases, suggested while the user types into a row.
+    private final PurchaseHistory purchaseHistory;
+
+    // Row colors for the current theme, see onAttachedToRecyclerView().
+    private RowPalette palette;
+
+    // True while the adapter shows the first screen preview instead of a snapshot of the model.
+    private boolean showingPreview;
+
+    // Rows holding typed text that has not been saved to the model yet.
+    private final Set<ItemViewHolder> rowsWithPendingText = new HashSet<>();
+
+    // Constructor for the adapter. It takes in the purchase history used for suggestions, the
+    // callback for changes and the stats to measure into. The items are handed over later as
+    // snapshots through submitList().
+    public ItemAdapter(PurchaseHistory purchaseHistory, Callback callback, PerfStats stats) {
+        this.purchaseHistory = purchaseHistory;
+        this.callback = new MeasuredCallback(callback);
+        createTimes = stats.histogram("adapter.create_ns");
+        bindTimes = stats.histogram("adapter.bind_ns");
+        partialBindTimes = stats.histogram("adapter.bind_partial_ns");
+        bindsPerAction = stats.histogram("adapter.binds_per_action");
+        submitTimes = stats.histogram("adapter.submit_to_commit_ns");
+        // Every item has a unique id, so the RecyclerView can keep track of rows by id
+        // and reuse their views when items move.
+        setHasStableIds(true);
+        // Registered first, so it runs after the RecyclerView has seen each structural change.
+        registerAdapterDataObserver(new ParityRefresher());
+        registerAdapterDataObserver(new NotificationCounter(stats));
     }
 
     // This method is called when a new ViewHolder is needed. This happens when the RecyclerView is laid out.
     // The created ViewHolder will be used to display items of the adapter using onBindViewHolder.
     @NonNull
     @Override
-    public ItemViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        // We inflate the item layout. This turns the XML layout file into an actual View object.
-        View view = LayoutInflater.from(context).inflate(R.layout.list_item, parent, false);
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        long start = System.nanoTime();
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        RecyclerView.ViewHolder holder;
+        if (viewType == VIEW_TYPE_HEADER) {
+            holder = new HeaderViewHolder(inflater.inflate(R.layout.section_header, parent, false));
+        } else {
+            // We inflate the item layout. This turns the XML layout file into an actual View object.
+            holder = new ItemViewHolder(inflater.inflate(R.layout.list_item, parent, false));
+        }
+        createTimes.record(System.nanoTime() - start);
         // Return the ViewHolder instance.
-        return new ItemViewHolder(view);
+        return holder;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return getItem(position) instanceof SectionHeader ? VIEW_TYPE_HEADER : VIEW_TYPE_ITEM;
+    }
+
+    @Override
+    public int getItemCount() {
+        return currentList.size();
+    }
+
+    // The row at the given position: an item, or a SectionHeader.
+    public Item getItem(int position) {
+        return currentList.get(position);
+    }
+
+    // The rows shown right now.
+    public List<Item> getCurrentList() {
+        return currentList;
+    }
+
+    // Shows a new snapshot once the background diff is done, timing how long that takes.
+    public void submitList(@Nullable List<Item> list) {
+        submitList(list, null);
+    }
+
+    // The same, running 'commitCallback' once the snapshot is shown (unless a newer one
+    // replaced it before).
+    public void submitList(@Nullable List<Item> list, @Nullable Runnable commitCallback) {
+        List<Item> newList = list == null ? Collections.<Item>emptyList() : list;
+        long submitted = System.nanoTime();
+        int run = ++generation;
+        submittedList = newList;
+        List<Item> oldList = currentList;
+        if (showingPreview) {
+            showingPreview = false;
+            replacePreview(newList);
+            committed(submitted, commitCallback);
+            return;
+        }
+        if (oldList.isEmpty() || newList.isEmpty()) {
+            // Nothing to compare: everything is inserted or removed.
+            currentList = newList;
+            if (!oldList.isEmpty()) {
+                notifyItemRangeRemoved(0, oldList.size());
+            } else if (!newList.isEmpty()) {
+                notifyItemRangeInserted(0, newList.size());
+            }
+            committed(submitted, commitCallback);
+            return;
+        }
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return oldList.size();
+                }
+
+                @Override
+                public int getNewListSize() {
+                    return newList.size();
+                }
+
+                @Override
+                public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                    return DIFF_CALLBACK.areItemsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+                }
+
+                @Override
+                public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                    return DIFF_CALLBACK.areContentsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+                }
+
+                @Nullable
+                @Override
+                public Object getChangePayload(int oldPosition, int newPosition) {
+                    return DIFF_CALLBACK.getChangePayload(oldList.get(oldPosition), newList.get(newPosition));
+                }
+            });
+            mainHandler.post(() -> {
+                if (run == generation) {
+                    currentList = newList;
+                    diff.dispatchUpdatesTo(this);
+                    committed(submitted, commitCallback);
+                }
+            });
+        });
+    }
+
+    // Shows 'list', which was made from 'previous' by the changes 'changes' reports, without
+    // comparing the two: e.g. collapsing a section is one range removal, whatever its size.
+    // If 'previous' is not what the adapter shows (a diff for a newer list is still running,
+    // say), the lists are compared as usual instead.
+    public void submitChange(List<Item> previous, List<Item> list, Consumer<ListUpdateCallback> changes) {
+        if (previous != currentList || previous != submittedList || showingPreview) {
+            submitList(list);
+            return;
+        }
+        long submitted = System.nanoTime();
+        generation++;
+        currentList = list;
+        submittedList = list;
+        changes.accept(new AdapterListUpdateCallback(this));
+        committed(submitted, null);
+    }
+
+    // Shows the first rows saved at the last run (see ItemJournal.readFirstScreen()) while the
+    // whole list is still loading. Only works on an adapter that has not shown a list yet.
+    // The next submitList() replaces them without a diff.
+    public void showPreview(List<Item> firstScreen) {
+        if (currentList.isEmpty() && !firstScreen.isEmpty()) {
+            showingPreview = true;
+            currentList = firstScreen;
+            submittedList = firstScreen;
+            notifyItemRangeInserted(0, firstScreen.size());
+        }
+    }
+
+    // Diffing a screenful of rows against the whole restored list would take time quadratic in
+    // its size. If the preview rows are where the list has them, the rest is one insertion;
+    // otherwise the preview is removed and the list inserted in the same frame, and rows with
+    // the same id keep their views.
+    private void replacePreview(List<Item> list) {
+        List<Item> preview = currentList;
+        currentList = list;
+        boolean prefix = preview.size() <= list.size();
+        for (int i = 0; prefix && i < preview.size(); i++) {
+            prefix = preview.get(i).getId() == list.get(i).getId();
+        }
+        if (!prefix) {
+            notifyItemRangeRemoved(0, preview.size());
+            notifyItemRangeInserted(0, list.size());
+            return;
+        }
+        for (int i = 0; i < preview.size(); i++) {
+            if (!preview.get(i).hasSameContents(list.get(i))) {
+                notifyItemChanged(i);
+            }
+        }
+        if (list.size() > preview.size()) {
+            notifyItemRangeInserted(preview.size(), list.size() - preview.size());
+        }
+    }
+
+    private void committed(long submitted, @Nullable Runnable commitCallback) {
+        submitTimes.record(System.nanoTime() - submitted);
+        if (commitCallback != null) {
+            commitCallback.run();
+        }
+    }
+
+    // Returns the unique id of the item at the given position.
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
+    }
+
+    // Saves all typed text that is still waiting for the debounce delay, e.g. before the app
+    // goes to the background.
+    public void commitPendingText() {
+        for (ItemViewHolder holder : new ArrayList<>(rowsWithPendingText)) {
+            holder.commitPendingText();
+        }
+    }
+
+    // A row going off screen saves its pending text before it is reused for another item.
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        if (holder instanceof ItemViewHolder) {
+            ((ItemViewHolder) holder).commitPendingText();
+        }
+    }
+
+    // The palette is looked up when the adapter is attached to a RecyclerView, so it always
+    // matches the theme (e.g. night mode) of the screen showing the list.
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        palette = RowPalette.resolve(recyclerView.getContext());
+    }
+
+    // The RecyclerView is going away (e.g. with its activity): save what its rows still hold.
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        commitPendingText();
     }
 
     // This method binds the data to the ViewHolder.
     // This method is called by the RecyclerView to display data at a specific position in the list.
     @Override
-    public void onBindViewHolder(@NonNull ItemViewHolder holder, int position) {
-        // Get the item from the list at the specified position.
-        Item item = items.get(position);
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder viewHolder, int position) {
+        long start = System.nanoTime();
+        if (viewHolder instanceof HeaderViewHolder) {
+            ((HeaderViewHolder) viewHolder).bind((SectionHeader) getItem(position), position);
+            bindTimes.record(System.nanoTime() - start);
+            countBind();
+            return;
+        }
+        ItemViewHolder holder = (ItemViewHolder) viewHolder;
+        // Get the item from the current snapshot at the specified position.
+        Item item = getItem(position);
+
+        // If the row is about to show another item, save what was typed for the old one first.
+        if (holder.boundItemId != item.getId()) {
+            holder.commitPendingText();
+            holder.boundItemId = item.getId();
+        }
 
         // Update the views inside the ViewHolder with the data from the item.
-        holder.editTextItem.setText(item.getText());
+        bindText(holder, item);
+        bindButtons(holder, item);
+        bindBackground(holder, item, position);
+        bindTimes.record(System.nanoTime() - start);
+        countBind();
+    }
 
+    // Partial bind: the payloads tell which parts of the row changed (see ItemChanges),
+    // so only those views are updated. Without payloads the whole row is bound.
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder viewHolder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (!(viewHolder instanceof ItemViewHolder)) {
+            onBindViewHolder(viewHolder, position);
+            return;
+        }
+        ItemViewHolder holder = (ItemViewHolder) viewHolder;
+        int changes = 0;
+        for (Object payload : payloads) {
+            if (!(payload instanceof Integer)) {
+                changes = 0;
+                break;
+            }
+            changes |= (Integer) payload;
+        }
+        Item item = getItem(position);
+        if (changes == 0 || holder.boundItemId != item.getId()) {
+            onBindViewHolder(viewHolder, position);
+            return;
+        }
 
-        // If the item has text, show the options and remove button.
-        if (!item.getText().isEmpty()) {
+        long start = System.nanoTime();
+        if ((changes & ItemChanges.TEXT) != 0) {
+            bindText(holder, item);
+        }
+        if ((changes & (ItemChanges.TEXT | ItemChanges.OPTIONS)) != 0) {
+            bindButtons(holder, item);
+        }
+        if ((changes & ItemChanges.BACKGROUND) != 0) {
+            bindBackground(holder, item, position);
+        }
+        partialBindTimes.record(System.nanoTime() - start);
+        countBind();
+    }
+
+    private void countBind() {
+        if (bindsSinceAction >= 0) {
+            bindsSinceAction++;
+        }
+    }
+
+    // Called on the UI thread whenever the user changes something.
+    private void userAction() {
+        if (bindsSinceAction >= 0) {
+            bindsPerAction.record(bindsSinceAction);
+        }
+        bindsSinceAction = 0;
+    }
+
+    private void bindText(ItemViewHolder holder, Item item) {
+        // If the row already shows this text (e.g. the user just typed it), or the user is
+        // still typing into it, leave it alone, so the cursor does not jump.
+        if (!holder.hasPendingText && !TextUtils.equals(holder.editTextItem.getText(), item.getText())) {
+            holder.bindingText = true;
+            // Setting the text must not open the suggestions, only typing does.
+            holder.editTextItem.setText(item.getText(), false);
+            holder.bindingText = false;
+        }
+        holder.rowHasText = holder.editTextItem.length() > 0;
+    }
+
+    private void bindButtons(ItemViewHolder holder, Item item) {
+        // If the row has text, show the options and remove button.
+        if (holder.rowHasText) {
             holder.optionsButton.setVisibility(View.VISIBLE);
             holder.removeButton.setVisibility(View.VISIBLE);
         } else {
@@ -62,7 +459,8 @@ public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder
         }
 
         // Determine the visibility of the importance buttons based on options expansion status.
-        if (item.isOptionsExpanded()) {
+        // While the user is typing, the buttons stay open like the TextWatcher left them.
+        if (item.isOptionsExpanded() || (holder.hasPendingText && holder.rowHasText)) {
             holder.importantButton.setVisibility(View.VISIBLE);
             holder.normalButton.setVisibility(View.VISIBLE);
             holder.unimportantButton.setVisibility(View.VISIBLE);
@@ -72,33 +470,187 @@ public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder
             holder.normalButton.setVisibility(View.GONE);
             holder.unimportantButton.setVisibility(View.GONE);
         }
+    }
 
-        int colorRes; // This will store the color resource ID.
+    private void bindBackground(ItemViewHolder holder, Item item, int position) {
+        // The color depends on importance and position (odd/even), taken from the palette.
+        holder.itemView.setBackgroundColor(palette.colorFor(item.getImportance(), position));
+    }
 
-        // Determine the color based on importance and position.
-        switch (item.getImportance()) {
-            case IMPORTANT:
-                // Choose between two colors based on position (odd/even).
-                colorRes = (position % 2 == 0) ? R.color.color_important_even : R.color.color_important_odd;
-                break;
-            case UNIMPORTANT:
-                colorRes = (position % 2 == 0) ? R.color.color_unimportant_even : R.color.color_unimportant_odd;
-                break;
-            case NORMAL:
-            default:
-                colorRes = (position % 2 == 0) ? R.color.color_normal_even : R.color.color_normal_odd;
-                break;
+    // Row backgrounds alternate by position (odd/even), so when rows are inserted, removed or
+    // moved, the rows that shifted by one need to repaint their background. This observer
+    // repaints exactly that range (and only the background) instead of the whole list.
+    // Rows shifted by an even number keep their parity, e.g. below most collapsed sections.
+    private class ParityRefresher extends RecyclerView.AdapterDataObserver {
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (itemCount % 2 != 0) {
+                refreshFrom(positionStart + itemCount);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            if (itemCount % 2 != 0) {
+                refreshFrom(positionStart);
+            }
         }
 
-        // Set the background color for the item.
-        holder.itemView.setBackgroundColor(ContextCompat.getColor(context, colorRes));
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            // Every row between the old and the new position (both included) changed its place.
+            int start = Math.min(fromPosition, toPosition);
+            int end = Math.max(fromPosition, toPosition) + itemCount;
+            notifyItemRangeChanged(start, Math.min(end, getItemCount()) - start, ItemChanges.BACKGROUND);
+        }
+
+        private void refreshFrom(int start) {
+            if (start < getItemCount()) {
+                notifyItemRangeChanged(start, getItemCount() - start, ItemChanges.BACKGROUND);
+            }
+        }
     }
 
-    // This method returns the size of the dataset.
-    // It tells the RecyclerView how many items are in the list.
-    @Override
-    public int getItemCount() {
-        return items.size();
+    // Marks every change the user makes as a new action before handing it on, see userAction().
+    private class MeasuredCallback implements Callback {
+        private final Callback callback;
+
+        MeasuredCallback(Callback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void addItem() {
+            userAction();
+            callback.addItem();
+        }
+
+        @Override
+        public void removeItem(long id) {
+            userAction();
+            callback.removeItem(id);
+        }
+
+        @Override
+        public void setItemImportance(long id, Item.ImportanceLevel importance) {
+            userAction();
+            callback.setItemImportance(id, importance);
+        }
+
+        @Override
+        public void setItemText(long id, String text) {
+            userAction();
+            callback.setItemText(id, text);
+        }
+
+        @Override
+        public void setItemOptionsExpanded(long id, boolean expanded) {
+            userAction();
+            callback.setItemOptionsExpanded(id, expanded);
+        }
+
+        @Override
+        public void setSectionCollapsed(int section, boolean collapsed) {
+            userAction();
+            callback.setSectionCollapsed(section, collapsed);
+        }
+    }
+
+    // The header row of a section. Tapping it hides or shows the items of the section; the
+    // arrow turns right away, the rows follow as one range change (see submitChange()).
+    class HeaderViewHolder extends RecyclerView.ViewHolder {
+        private final TextView title;
+        private SectionHeader header;
+        private boolean collapsed;
+
+        HeaderViewHolder(@NonNull View itemView) {
+            super(itemView);
+            title = itemView.findViewById(R.id.sectionTitle);
+            itemView.setOnClickListener(v -> {
+                if (header != null && getBindingAdapterPosition() != RecyclerView.NO_POSITION) {
+                    collapsed = !collapsed;
+                    showTitle();
+                    callback.setSectionCollapsed(header.getSection(), collapsed);
+                }
+            });
+        }
+
+        void bind(SectionHeader header, int position) {
+            this.header = header;
+            collapsed = header.isCollapsed();
+            showTitle();
+            itemView.setBackgroundColor(palette.colorFor(header.getImportance(), position));
+        }
+
+        private void showTitle() {
+            int name;
+            switch (header.getImportance()) {
+                case IMPORTANT:
+                    name = R.string.section_important;
+                    break;
+                case UNIMPORTANT:
+                    name = R.string.section_unimportant;
+                    break;
+                case NORMAL:
+                default:
+                    name = R.string.section_normal;
+                    break;
+            }
+            title.setText(itemView.getContext().getString(
+                    collapsed ? R.string.section_collapsed : R.string.section_expanded,
+                    itemView.getContext().getString(name), header.getSize()));
+        }
+    }
+
+    // Counts the notifications the RecyclerView gets, by kind, whoever sends them.
+    private static class NotificationCounter extends RecyclerView.AdapterDataObserver {
+        private final AtomicLong fullInvalidations;
+        private final AtomicLong rangeChanges;
+        private final AtomicLong rangeInserts;
+        private final AtomicLong rangeRemovals;
+        private final AtomicLong rangeMoves;
+        private final AtomicLong rowsChanged;
+
+        NotificationCounter(PerfStats stats) {
+            fullInvalidations = stats.counter("adapter.full_invalidations");
+            rangeChanges = stats.counter("adapter.range_changes");
+            rangeInserts = stats.counter("adapter.range_inserts");
+            rangeRemovals = stats.counter("adapter.range_removals");
+            rangeMoves = stats.counter("adapter.range_moves");
+            rowsChanged = stats.counter("adapter.rows_changed");
+        }
+
+        // notifyDataSetChanged(): every row is rebound and all animations are lost.
+        @Override
+        public void onChanged() {
+            fullInvalidations.incrementAndGet();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            rangeChanges.incrementAndGet();
+            rowsChanged.addAndGet(itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+            onItemRangeChanged(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            rangeInserts.incrementAndGet();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            rangeRemovals.incrementAndGet();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            rangeMoves.incrementAndGet();
+        }
     }
 
     // This is the ViewHolder class.
@@ -107,10 +659,25 @@ public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder
     public class ItemViewHolder extends RecyclerView.ViewHolder {
 
         // These are references to the views in the item layout.
-        EditText editTextItem;
+        AutoCompleteTextView editTextItem;
         ImageButton optionsButton, removeButton, importantButton, normalButton,
                 unimportantButton; // You can add references to other buttons here.
 
+        // Id of the item currently shown in this row.
+        long boundItemId = RecyclerView.NO_ID;
+
+        // True while the EditText holds typed text that has not been saved to the model yet.
+        boolean hasPendingText;
+
+        // True while onBindViewHolder sets the text, so the TextWatcher can ignore it.
+        boolean bindingText;
+
+        // Whether the row currently shows a non-empty text (and the buttons that go with it).
+        boolean rowHasText;
+
+        // Saves the typed text once the user has stopped typing for TEXT_COMMIT_DELAY_MS.
+        private final Runnable commitText = this::commitPendingText;
+
         // Constructor for the ViewHolder. The itemView is the root view of the item layout.
         public ItemViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -122,6 +689,10 @@ public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder
             normalButton = itemView.findViewById(R.id.normalButton);
             unimportantButton = itemView.findViewById(R.id.unimportantButton); // Continue with finding other views...
 
+            // Suggest earlier purchases under the text field. Picking one replaces the text,
+            // which the TextWatcher below handles like typing.
+            editTextItem.setAdapter(new SuggestionAdapter(itemView.getContext(), purchaseHistory));
+
             // This code sets up a listener so that we can respond to changes
             // in the EditText view. When user starts typing item name in edit text view, the importance
             // buttons will appear to add the item to the list
@@ -132,16 +703,29 @@ public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder
                 @Override
                 // This method is called when the text in the EditText changes.
                 public void onTextChanged(CharSequence s, int start, int before, int count) {
-                    if (s.length() > 0) {
+                    if (bindingText) {
+                        // The text was set by onBindViewHolder, it already matches the model.
+                        return;
+                    }
+
+                    // The EditText itself buffers what is typed. The text is only copied and
+                    // saved to the model once the user pauses, see commitPendingText().
+                    hasPendingText = true;
+                    rowsWithPendingText.add(ItemViewHolder.this);
+                    itemView.removeCallbacks(commitText);
+                    itemView.postDelayed(commitText, TEXT_COMMIT_DELAY_MS);
+
+                    // Only touch the buttons when the row goes from empty to non-empty or back.
+                    boolean hasText = s.length() > 0;
+                    if (hasText == rowHasText) {
+                        return;
+                    }
+                    rowHasText = hasText;
+
+                    if (hasText) {
                         // Based on the new text, we might change the visibility
                         // of other views in the ViewHolder.
 
-                        // Save the text to the Item object
-                        int position = getBindingAdapterPosition();
-                        if (position != RecyclerView.NO_POSITION) {
-                            items.get(position).setText(s.toString());
-                        }
-
                         // Show the importance buttons
                         importantButton.setVisibility(View.VISIBLE);
                         normalButton.setVisibility(View.VISIBLE);
@@ -162,6 +746,13 @@ public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder
                 public void afterTextChanged(Editable s) {}
             });
 
+            // When the user leaves the row, save the typed text without waiting for the delay.
+            editTextItem.setOnFocusChangeListener((v, hasFocus) -> {
+                if (!hasFocus) {
+                    commitPendingText();
+                }
+            });
+
             // This code sets up a listener on the optionsButton.
             // Clicking options button will disappear it, making visible
             // importance buttons instead.
@@ -170,9 +761,9 @@ public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder
                 public void onClick(View v) {
                     int position = getBindingAdapterPosition();
                     if (position != RecyclerView.NO_POSITION) {
-                        Item item = items.get(position);
+                        Item item = getItem(position);
                         // Toggle the options expansion status.
-                        item.setOptionsExpanded(!item.isOptionsExpanded());
+                        callback.setItemOptionsExpanded(item.getId(), !item.isOptionsExpanded());
                         // Update the visibility directly
                         optionsButton.setVisibility(View.GONE);
                         importantButton.setVisibility(View.VISIBLE);
@@ -182,105 +773,76 @@ public class ItemAdapter extends RecyclerView.Adapter<ItemAdapter.ItemViewHolder
                 }
             });
 
-            // This code sets up a listener on the importantButton.
-            // Clicking important button will disappear all importance buttons, making visible
+            // These listeners are set up on the importance buttons.
+            // Clicking an importance button will disappear all importance buttons, making visible
             // options buttons instead.
-            importantButton.setOnClickListener(v -> {
-                int position = getBindingAdapterPosition();
-                if (position != RecyclerView.NO_POSITION) {
-                    MainActivity mainActivity = (MainActivity) context;
-
-                    Item currentItem = items.get(position);
-
-                    // Set importance
-                    mainActivity.setItemImportance(position, Item.ImportanceLevel.IMPORTANT);
-                    items.get(position).setOptionsExpanded(false);
-
-                    if (currentItem.isNewEntry()) {
-                        // If it's a newly added item, add another new item
-                        currentItem.setNewEntry(false);  // Update it to false, as it's no longer a new entry
-                        mainActivity.addItem();
-                    }
-
-                    // Update UI buttons
-                    importantButton.setVisibility(View.GONE);
-                    normalButton.setVisibility(View.GONE);
-                    unimportantButton.setVisibility(View.GONE);
-                    optionsButton.setVisibility(View.VISIBLE);
+            importantButton.setOnClickListener(v -> onImportanceClicked(Item.ImportanceLevel.IMPORTANT));
+            normalButton.setOnClickListener(v -> onImportanceClicked(Item.ImportanceLevel.NORMAL));
+            unimportantButton.setOnClickListener(v -> onImportanceClicked(Item.ImportanceLevel.UNIMPORTANT));
 
-                    MainActivity.sortAndRefreshList();  // Sort items after adding a new one.
-                }
-            });
-
-            // This code sets up a listener on the normalButton.
-            // Clicking normal button will disappear all importance buttons, making visible
-            // options buttons instead.
-            normalButton.setOnClickListener(v -> {
+            //  Sets listener on remove button
+            removeButton.setOnClickListener(v -> {
                 int position = getBindingAdapterPosition();
                 if (position != RecyclerView.NO_POSITION) {
-                    MainActivity mainActivity = (MainActivity) context;
-
-                    Item currentItem = items.get(position);
-
-                    //  Set importance
-                    mainActivity.setItemImportance(position, Item.ImportanceLevel.NORMAL);
-                    items.get(position).setOptionsExpanded(false);
-
-                    if (currentItem.isNewEntry()) {
-                        // If it's a newly added item, add another new item
-                        currentItem.setNewEntry(false);  // Update it to false, as it's no longer a new entry
-                        mainActivity.addItem();
-                    }
-
-                    // Update UI buttons
-                    importantButton.setVisibility(View.GONE);
-                    normalButton.setVisibility(View.GONE);
-                    unimportantButton.setVisibility(View.GONE);
-                    optionsButton.setVisibility(View.VISIBLE);
-
-                    MainActivity.sortAndRefreshList();  // Sort items after adding a new one.
+                    // The item is going away, so there is no point in saving its text.
+                    cancelPendingText();
+                    callback.removeItem(getItem(position).getId());
                 }
             });
 
-            // This code sets up a listener on the unimportantButton.
-            // Clicking unimportant button will disappear all importance buttons, making visible
-            // options buttons instead.
-            unimportantButton.setOnClickListener(v -> {
-                int position = getBindingAdapterPosition();
-                if (position != RecyclerView.NO_POSITION) {
-                    MainActivity mainActivity = (MainActivity) context;
-
-                    Item currentItem = items.get(position);
-
-                    //  Set importance
-                    mainActivity.setItemImportance(position, Item.ImportanceLevel.UNIMPORTANT);
-                    items.get(position).setOptionsExpanded(false);
-
-                    if (currentItem.isNewEntry()) {
-                        // If it's a newly added item, add another new item
-                        currentItem.setNewEntry(false);  // Update it to false, as it's no longer a new entry
-                        mainActivity.addItem();
-                    }
-
-                    // Update UI buttons
-                    importantButton.setVisibility(View.GONE);
-                    normalButton.setVisibility(View.GONE);
-                    unimportantButton.setVisibility(View.GONE);
-                    optionsButton.setVisibility(View.VISIBLE);
+        }
 
-                    MainActivity.sortAndRefreshList();  // Sort items after adding a new one.
+        // Sets the chosen importance on the item of this row. The model moves the item
+        // straight to its place in the list, so there is no need to re-sort everything.
+        private void onImportanceClicked(Item.ImportanceLevel importance) {
+            // The model should know the final text before the item is placed in the list.
+            commitPendingText();
+
+            int position = getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                Item currentItem = getItem(position);
+
+                // Update UI buttons
+                importantButton.setVisibility(View.GONE);
+                normalButton.setVisibility(View.GONE);
+                unimportantButton.setVisibility(View.GONE);
+                optionsButton.setVisibility(View.VISIBLE);
+
+                // Set importance, this moves the item to the end of its importance group
+                // and collapses its options.
+                callback.setItemImportance(currentItem.getId(), importance);
+
+                if (currentItem.isNewEntry()) {
+                    // If it was a newly added item, add another new item
+                    callback.addItem();
                 }
-            });
+            }
+        }
 
-            //  Sets listener on remove button
-            removeButton.setOnClickListener(v -> {
-                int position = getBindingAdapterPosition();
-                if (position != RecyclerView.NO_POSITION) {
-                    MainActivity mainActivity = (MainActivity) context;
-                    mainActivity.removeItem(position);
-                }
-            });
+        // Copies the typed text once and saves it to the model. The model publishes one new
+        // snapshot (and writes one journal record) for the whole burst of typing.
+        void commitPendingText() {
+            if (!hasPendingText) {
+                return;
+            }
+            cancelPendingText();
+            String text = editTextItem.getText().toString();
+            int lineBreak = text.indexOf('\n');
+            if (lineBreak >= 0) {
+                // Pasted lines become items of their own (see Callback.setItemText()),
+                // this row only keeps the first one.
+                bindingText = true;
+                editTextItem.setText(text.substring(0, lineBreak).trim(), false);
+                bindingText = false;
+            }
+            callback.setItemText(boundItemId, text);
+        }
 
+        // Forgets the typed text without saving it.
+        private void cancelPendingText() {
+            hasPendingText = false;
+            rowsWithPendingText.remove(this);
+            itemView.removeCallbacks(commitText);
         }
     }
 }
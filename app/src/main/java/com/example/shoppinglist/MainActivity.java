@@ -1,29 +1,82 @@
 package com.example.shoppinglist;
 
+import android.content.ClipData;
+import android.content.ClipboardManager;
+import android.content.pm.ApplicationInfo;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.EditText;
+import android.widget.PopupMenu;
+import android.widget.TextView;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+
+    // Extra rows inflated ahead beyond a screenful, for the first scroll.
+    private static final int PREWARMED_EXTRA_ROWS = 2;
+
     // Reference to the RecyclerView UI component
     private RecyclerView recyclerView;
 
-    // Adapter bridges the data and the RecyclerView,
-    // determining how each individual item should be displayed.
-    private static ItemAdapter itemAdapter;
+    // Holds the list and its adapter, and survives when the activity is recreated
+    // (e.g. after rotating the screen).
+    private ShoppingListViewModel viewModel;
 
-    // A list to hold our shopping items
-    private static List<Item> itemList = new ArrayList<>();
+    // The backup being browsed, if any.
+    private AlertDialog backupDialog;
+
+    // Let the user pick where to export the list to, or which file to import. The text format is
+    // for sharing, the binary one for backups.
+    private final ActivityResultLauncher<String> exportText = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("text/plain"), this::exportTo);
+    private final ActivityResultLauncher<String> exportBinary = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/octet-stream"), this::exportTo);
+    private final ActivityResultLauncher<String[]> importFile = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) {
+                    viewModel.importList(uri);
+                }
+            });
+    // A backup to look through without importing it.
+    private final ActivityResultLauncher<String[]> browseFile = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) {
+                    viewModel.openBackup(uri, this::showBackup);
+                }
+            });
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long createdAt = System.nanoTime();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        // The first activity creates the view model (which loads the list),
+        // a recreated one gets the same instance back.
+        viewModel = new ViewModelProvider(this).get(ShoppingListViewModel.class);
+
         // Find the RecyclerView in the layout
         recyclerView = findViewById(R.id.recyclerView);
 
@@ -31,60 +84,215 @@ public class MainActivity extends AppCompatActivity {
         // The LayoutManager dictates the manner in which items are arranged on the screen
         // Here, we use LinearLayoutManager which arranges items in a vertical list
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        // The list takes the space left by the filter bar, whatever it shows, so adding or
+        // removing rows never has to lay out the rest of the screen again.
+        recyclerView.setHasFixedSize(true);
+
+        // Attach the adapter of the view model. It already holds the current list,
+        // so nothing has to be rebuilt.
+        recyclerView.setAdapter(viewModel.getItemAdapter());
+
+        // The first frame only waits for the layout: the list (or the rows saved for the first
+        // screen) arrives from the writer thread. Once it is drawn, the rows are inflated ahead.
+        View root = getWindow().getDecorView();
+        ViewTreeObserver.OnDrawListener firstDraw = new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn;
+
+            @Override
+            public void onDraw() {
+                if (drawn) {
+                    return;
+                }
+                drawn = true;
+                viewModel.getPerfStats().histogram("startup.first_frame_ns").record(System.nanoTime() - createdAt);
+                // A listener cannot be removed while the tree is being drawn.
+                root.post(() -> {
+                    root.getViewTreeObserver().removeOnDrawListener(this);
+                    prewarmRows();
+                });
+            }
+        };
+        root.getViewTreeObserver().addOnDrawListener(firstDraw);
+        // Tells the system (and "adb shell am start -W") when the whole list is on screen.
+        viewModel.setOnListShown(this::reportFullyDrawn);
 
-        // Setup the RecyclerView with an adapter
-        // Initialize with the current list of items
-        // Initialize with empty list for now
-        itemAdapter = new ItemAdapter(this, itemList);
-        recyclerView.setAdapter(itemAdapter);
+        // Filter the list while the user types into the filter bar.
+        EditText filterEditText = findViewById(R.id.filterEditText);
+        filterEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
 
-        // TODO: Initialize your data or load it from a source if needed
-        // For now, adding a blank item as a starting point:
-        addItem();
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                viewModel.setFilterQuery(s.toString());
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {}
+        });
+
+        // Actions working on many items at once, each applied to the list as one change.
+        findViewById(R.id.bulkActionsButton).setOnClickListener(v -> {
+            PopupMenu menu = new PopupMenu(this, v);
+            menu.inflate(R.menu.bulk_actions);
+            boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+            menu.getMenu().findItem(R.id.showPerfStats).setVisible(debuggable);
+            menu.setOnMenuItemClickListener(menuItem -> {
+                int id = menuItem.getItemId();
+                if (id == R.id.clearUnimportant) {
+                    viewModel.clearUnimportantItems();
+                } else if (id == R.id.markShownImportant) {
+                    viewModel.setShownItemsImportance(Item.ImportanceLevel.IMPORTANT);
+                } else if (id == R.id.markShownNormal) {
+                    viewModel.setShownItemsImportance(Item.ImportanceLevel.NORMAL);
+                } else if (id == R.id.markShownUnimportant) {
+                    viewModel.setShownItemsImportance(Item.ImportanceLevel.UNIMPORTANT);
+                } else if (id == R.id.exportList) {
+                    exportText.launch(getString(R.string.export_file_name));
+                } else if (id == R.id.backUpList) {
+                    exportBinary.launch(getString(R.string.backup_file_name));
+                } else if (id == R.id.importList) {
+                    importFile.launch(new String[] {"text/*", "application/octet-stream"});
+                } else if (id == R.id.browseBackup) {
+                    browseFile.launch(new String[] {"application/octet-stream"});
+                } else if (id == R.id.showPerfStats) {
+                    showPerfStats();
+                } else {
+                    return false;
+                }
+                return true;
+            });
+            menu.show();
+        });
     }
 
-    // Method to add a new item to the list
-    public void addItem() {
-        // Create a new empty item and add it to the list
-        // For simplicity, using current time in milliseconds as ID (just an example)
-        Item item = new Item(System.currentTimeMillis(), "");
-        itemList.add(item);
-        // Notify the adapter that a new item has been inserted to the list
-        itemAdapter.notifyItemInserted(itemList.size() - 1);
+    // Inflates the rows missing for a full screen (plus a few) into the pool of the RecyclerView,
+    // one per idle moment of the UI thread, so no frame waits for a whole screen of inflations
+    // when the restored list arrives or the user starts scrolling.
+    private void prewarmRows() {
+        int rowHeight = getResources().getDimensionPixelSize(R.dimen.list_item_height);
+        int rows = recyclerView.getHeight() / rowHeight + 1 + PREWARMED_EXTRA_ROWS;
+        int missing = rows - recyclerView.getChildCount();
+        if (missing <= 0) {
+            return;
+        }
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        // The default pool keeps only 5 views of a type.
+        pool.setMaxRecycledViews(ItemAdapter.VIEW_TYPE_ITEM, Math.max(5, missing));
+        AtomicLong prewarmed = viewModel.getPerfStats().counter("startup.prewarmed_rows");
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            private int left = missing;
+
+            @Override
+            public boolean queueIdle() {
+                RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
+                if (adapter == null || isDestroyed()
+                        || recyclerView.getChildCount() + pool.getRecycledViewCount(ItemAdapter.VIEW_TYPE_ITEM) >= rows) {
+                    // Gone, or the list has created the rows meanwhile.
+                    return false;
+                }
+                pool.putRecycledView(adapter.createViewHolder(recyclerView, ItemAdapter.VIEW_TYPE_ITEM));
+                prewarmed.incrementAndGet();
+                return --left > 0;
+            }
+        });
+    }
 
+    // Shows a backup read a page at a time. The pages are dropped and the file closed with the
+    // dialog (also when the activity goes away).
+    private void showBackup(PagedItemList items) {
+        if (isFinishing() || isDestroyed()) {
+            closeBackup(items);
+            return;
+        }
+        RecyclerView list = (RecyclerView) getLayoutInflater().inflate(R.layout.dialog_archive, null);
+        list.setLayoutManager(new LinearLayoutManager(this));
+        list.setHasFixedSize(true);
+        new ArchiveAdapter(this, items).attachTo(list);
+        backupDialog = new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.browse_backup_title, items.size()))
+                .setView(list)
+                .setPositiveButton(R.string.browse_backup_close, null)
+                .setOnDismissListener(d -> closeBackup(items))
+                .show();
     }
 
-    // Method to remove an item from a specific position
-    public void removeItem(int position) {
-        if(position >= 0 && position < itemList.size()) {
-            itemList.remove(position);
-            // Notify the adapter that an item has been removed
-            itemAdapter.notifyItemRemoved(position);
+    private static void closeBackup(PagedItemList items) {
+        try {
+            items.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not close the backup", e);
         }
     }
 
-    // Method to set the importance level for an item
-    public void setItemImportance(int position, Item.ImportanceLevel importance) {
-        Item currentItem = itemList.get(position);
-        currentItem.setImportance(importance);
-        // Notify the adapter that the data for an item has changed and needs to be re-displayed
-        itemAdapter.notifyItemChanged(position);
+    // The debug screen: the PerfStats report, to copy as JSON (e.g. into a bug report) or
+    // reset before reproducing a problem.
+    private void showPerfStats() {
+        PerfStats stats = viewModel.getPerfStats();
+        View content = getLayoutInflater().inflate(R.layout.dialog_perf_stats, null);
+        TextView text = content.findViewById(R.id.perfStatsText);
+        text.setText(stats.toText());
+        AlertDialog dialog = new AlertDialog.Builder(this)
+                .setTitle(R.string.perf_stats)
+                .setView(content)
+                .setPositiveButton(R.string.perf_stats_close, null)
+                .setNeutralButton(R.string.perf_stats_reset, null)
+                .setNegativeButton(R.string.perf_stats_copy, (d, which) -> {
+                    ClipboardManager clipboard = getSystemService(ClipboardManager.class);
+                    clipboard.setPrimaryClip(ClipData.newPlainText(getString(R.string.perf_stats), stats.toJson()));
+                })
+                .show();
+        // Reset keeps the dialog open, showing the fresh numbers.
+        dialog.getButton(AlertDialog.BUTTON_NEUTRAL).setOnClickListener(v -> {
+            stats.reset();
+            text.setText(stats.toText());
+        });
+    }
 
+    // Adds the PerfStats report to
+    //   adb shell dumpsys activity com.example.shoppinglist/.MainActivity [--json]
+    // which also works on release builds, e.g. to collect numbers from a real device.
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd, @NonNull PrintWriter writer,
+                     @Nullable String[] args) {
+        super.dump(prefix, fd, writer, args);
+        if (viewModel == null) {
+            return;
+        }
+        PerfStats stats = viewModel.getPerfStats();
+        if (args != null && Arrays.asList(args).contains("--json")) {
+            writer.println(stats.toJson());
+        } else {
+            writer.print(prefix);
+            writer.println("PerfStats:");
+            for (String line : stats.toText().split("\n")) {
+                writer.print(prefix);
+                writer.print("  ");
+                writer.println(line);
+            }
+        }
     }
 
-    // Static method to sort items by their importance level
-    public static void sortAndRefreshList() {
-        itemList.sort((item1, item2) -> {
-            // Place empty item at the bottom.
-            if (item1.getText().isEmpty()) return 1;
-            if (item2.getText().isEmpty()) return -1;
+    private void exportTo(Uri uri) {
+        if (uri != null) {
+            viewModel.exportList(uri);
+        }
+    }
 
-            // Compare importance levels.
-            return item1.getImportance().ordinal() - item2.getImportance().ordinal();
-        });
-        // Notify the adapter that the dataset has changed
-        // This will force all items to be redrawn
-        itemAdapter.notifyDataSetChanged();
+    @Override
+    protected void onStop() {
+        super.onStop();
+        viewModel.saveNow();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        viewModel.setOnListShown(null);
+        if (backupDialog != null) {
+            backupDialog.dismiss();
+        }
+        // The adapter outlives this activity, so detach it from our views.
+        recyclerView.setAdapter(null);
+    }
 }
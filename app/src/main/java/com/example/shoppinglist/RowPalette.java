@@ -0,0 +1,51 @@
+package com.example.shoppinglist;
+
+import android.content.Context;
+import androidx.core.content.ContextCompat;
+
+// This class holds the row background colors, looked up once instead of on every bind.
+//
+// There are six colors: one per importance level, each in an "even" and an "odd" shade so that
+// neighbouring rows can be told apart. They are resolved from the resources of the given
+// context, so they match its theme (e.g. the night mode colors in values-night).
+public class RowPalette {
+
+    // Colors indexed by importance.ordinal() * 2 + (position % 2).
+    private final int[] colors;
+
+    private RowPalette(int[] colors) {
+        this.colors = colors;
+    }
+
+    // Looks up all row colors for the theme of the given context.
+    public static RowPalette resolve(Context context) {
+        int[] colors = new int[Item.ImportanceLevel.values().length * 2];
+        for (Item.ImportanceLevel importance : Item.ImportanceLevel.values()) {
+            int evenRes;
+            int oddRes;
+            switch (importance) {
+                case IMPORTANT:
+                    evenRes = R.color.color_important_even;
+                    oddRes = R.color.color_important_odd;
+                    break;
+                case UNIMPORTANT:
+                    evenRes = R.color.color_unimportant_even;
+                    oddRes = R.color.color_unimportant_odd;
+                    break;
+                case NORMAL:
+                default:
+                    evenRes = R.color.color_normal_even;
+                    oddRes = R.color.color_normal_odd;
+                    break;
+            }
+            colors[importance.ordinal() * 2] = ContextCompat.getColor(context, evenRes);
+            colors[importance.ordinal() * 2 + 1] = ContextCompat.getColor(context, oddRes);
+        }
+        return new RowPalette(colors);
+    }
+
+    // Returns the background color for a row with the given importance at the given position.
+    public int colorFor(Item.ImportanceLevel importance, int position) {
+        return colors[importance.ordinal() * 2 + (position & 1)];
+    }
+}
@@ -0,0 +1,510 @@
+package com.example.shoppinglist;
+
+import android.app.Application;
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+import android.widget.Toast;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StringRes;
+import androidx.lifecycle.AndroidViewModel;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// This class holds the shopping list for MainActivity and survives configuration changes
+// (e.g. rotating the screen), so the list is loaded once instead of on every new activity.
+//
+// It also owns the ItemAdapter: a recreated activity only attaches the same adapter to its new
+// RecyclerView. Neither this class nor the adapter keeps a reference to an activity, so an old
+// activity can be garbage collected as soon as it is destroyed.
+//
+// All changes of the list go through an ItemListStore and run on its writer thread, one after
+// the other; so do loading the list from disk, the journal and the search index. The UI thread
+// only hands changes over and never waits for them. New snapshots are filtered on the writer
+// thread and then posted to the adapter on the UI thread.
+//
+// At startup, the first rows saved at the last run are shown before the whole list is read, so
+// the first screen does not wait for a list of any size; the restored list then replaces them.
+public class ShoppingListViewModel extends AndroidViewModel implements ItemAdapter.Callback {
+
+    private static final String TAG = "ShoppingListViewModel";
+
+    // Measurements of the list changes and the adapter, see getPerfStats().
+    private final PerfStats perfStats = new PerfStats();
+
+    // Time spent filtering a new snapshot for the filter bar.
+    private final Histogram filterTimes = perfStats.histogram("list.filter_ns");
+
+    // Startup, measured from the creation of this view model, i.e. from the first onCreate():
+    // until the first screen preview and the whole restored list are in the adapter, and the
+    // time spent reading the whole list.
+    private final long createdAt = System.nanoTime();
+    private final Histogram firstScreenTimes = perfStats.histogram("startup.first_screen_ns");
+    private final Histogram fullListTimes = perfStats.histogram("startup.full_list_ns");
+    private final Histogram restoreTimes = perfStats.histogram("startup.restore_ns");
+
+    // Whether the restored list is in the adapter yet, and who to tell when it is.
+    // Only used on the UI thread.
+    private boolean listShown;
+    private Runnable onListShown;
+
+    // The model holding our shopping items, already kept in display order
+    // (grouped by importance, with the blank entry always last), behind its writer thread.
+    private final ItemListStore itemListStore;
+
+    // Writes every change of the list to disk, so the list survives when the app is closed.
+    private final ItemJournal itemJournal;
+
+    // Hands out unique ids for new items.
+    private final ItemIdGenerator itemIdGenerator = new ItemIdGenerator();
+
+    // Index over the item texts, kept up to date with every change, used for filtering.
+    // Only used on the writer thread.
+    private final ItemSearchIndex itemSearchIndex = new ItemSearchIndex();
+
+    // Item texts put on the list before, suggested while typing a new item.
+    // The history only reads its file on first use, which happens on the background
+    // thread of the suggestions.
+    private final PurchaseHistory purchaseHistory;
+
+    // Adapter bridges the data and the RecyclerView,
+    // determining how each individual item should be displayed.
+    private final ItemAdapter itemAdapter;
+
+    // The text typed into the filter bar; empty means the whole list is shown.
+    // Only used on the writer thread.
+    private String filterQuery = "";
+
+    // Which sections of the list only show their header, and the rows last handed to the
+    // adapter. Only used on the writer thread.
+    private final boolean[] collapsedSections = new boolean[SectionedItemList.SECTIONS];
+    private SectionedItemList shownRows;
+
+    // Runs the adapter updates on the UI thread.
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Reads and writes exported lists, one file at a time, so neither the UI thread nor the
+    // writer thread waits for a file.
+    private final ExecutorService fileExecutor = Executors.newSingleThreadExecutor();
+
+    // A backup being browsed is read a page at a time, on its own thread so an import or export
+    // does not hold up scrolling. At most BACKUP_PAGES pages are in memory at once, so about
+    // 800 items for a backup of any length.
+    private static final int BACKUP_PAGE_SIZE = 100;
+    private static final int BACKUP_PAGES = 8;
+    private static final int BACKUP_PREFETCH_PAGES = 2;
+    private final ExecutorService pageExecutor = Executors.newSingleThreadExecutor();
+
+    public ShoppingListViewModel(@NonNull Application application) {
+        super(application);
+        purchaseHistory = new PurchaseHistory(new File(application.getFilesDir(), "history"));
+        itemListStore = new ItemListStore(perfStats);
+        itemAdapter = new ItemAdapter(purchaseHistory, this, perfStats);
+
+        itemJournal = new ItemJournal(new File(application.getFilesDir(), "list"), itemListStore::getSnapshot);
+        // Load the list saved on disk, on the writer thread, so the UI does not wait for the disk.
+        itemListStore.execute(this::restore);
+    }
+
+    // Runs on the writer thread, before any other change.
+    private void restore(ItemListModel itemListModel) {
+        // A few rows to show right away, read without touching the rest of the list.
+        List<Item> firstScreen = itemJournal.readFirstScreen();
+        if (!firstScreen.isEmpty()) {
+            SectionedItemList rows = new SectionedItemList(firstScreen, collapsedSections);
+            mainHandler.post(() -> {
+                itemAdapter.showPreview(rows);
+                firstScreenTimes.record(System.nanoTime() - createdAt);
+            });
+        }
+
+        long start = System.nanoTime();
+        try {
+            List<Item> restored = itemJournal.restore();
+            // New items must never get an id that is already used by a restored one.
+            for (Item item : restored) {
+                itemIdGenerator.advancePast(item.getId());
+            }
+            itemListModel.setItems(restored);
+            // From now on every change is written to the journal.
+            itemListModel.addChangeListener(itemJournal);
+        } catch (IOException e) {
+            // Keep the damaged files untouched, the app still works, just without saving.
+            Log.e(TAG, "Could not restore the shopping list", e);
+        }
+
+        restoreTimes.record(System.nanoTime() - start);
+
+        // Hand every new snapshot of the model to the adapter. The adapter works out the
+        // differences on a background thread and only updates the rows that changed.
+        // The restored list goes first, the index is built while it is being shown.
+        showList(itemListModel, itemListModel.getSnapshot(), () -> {
+            fullListTimes.record(System.nanoTime() - createdAt);
+            listShown = true;
+            if (onListShown != null) {
+                onListShown.run();
+                onListShown = null;
+            }
+        });
+        itemListModel.setListener(snapshot -> showList(itemListModel, snapshot));
+
+        // Index the texts of the list, the index then follows every change.
+        itemSearchIndex.rebuild(itemListModel.getSnapshot());
+        itemListModel.addChangeListener(itemSearchIndex);
+
+        // Make sure there is a blank item to type into as the last row.
+        int size = itemListModel.size();
+        if (size == 0 || !itemListModel.get(size - 1).isNewEntry()) {
+            itemListModel.add(new Item(itemIdGenerator.nextId(), ""));
+        }
+    }
+
+    public ItemAdapter getItemAdapter() {
+        return itemAdapter;
+    }
+
+    // Runs 'listener' on the UI thread once the restored list is shown (right away if it is
+    // already), e.g. to report the activity as fully drawn. Pass null to drop a listener that
+    // has not run yet.
+    public void setOnListShown(@Nullable Runnable listener) {
+        if (listener != null && listShown) {
+            listener.run();
+        } else {
+            onListShown = listener;
+        }
+    }
+
+    // Counters and histograms of the hot paths, for the debug screen and dumpsys.
+    public PerfStats getPerfStats() {
+        return perfStats;
+    }
+
+    // Filters the list by the text typed into the filter bar.
+    public void setFilterQuery(String query) {
+        itemListStore.execute(itemListModel -> {
+            if (!query.equals(filterQuery)) {
+                filterQuery = query;
+                showList(itemListModel, itemListModel.getSnapshot());
+            }
+        });
+    }
+
+    // The app may be killed while in the background, so save the text the user is still
+    // typing and write pending changes right away.
+    public void saveNow() {
+        itemAdapter.commitPendingText();
+        // Queued behind the text just committed, so the journal already holds it.
+        itemListStore.execute(itemListModel -> itemJournal.flushNow());
+    }
+
+    // Removes all UNIMPORTANT items at once.
+    public void clearUnimportantItems() {
+        itemListStore.execute(itemListModel -> itemListModel.removeAll(Item.ImportanceLevel.UNIMPORTANT));
+    }
+
+    // Sets the importance of all items currently shown (e.g. the ones matching the filter)
+    // at once. The blank row is left alone.
+    public void setShownItemsImportance(Item.ImportanceLevel importance) {
+        LongHashSet ids = new LongHashSet();
+        for (Item item : itemAdapter.getCurrentList()) {
+            if (!item.isNewEntry() && !(item instanceof SectionHeader)) {
+                ids.add(item.getId());
+            }
+        }
+        itemListStore.execute(itemListModel -> itemListModel.setImportance(ids, importance));
+    }
+
+    // Writes the list to the document the user picked: text documents get the text format,
+    // any other the binary one (see ItemFiles).
+    public void exportList(Uri uri) {
+        itemAdapter.commitPendingText();
+        ContentResolver resolver = getApplication().getContentResolver();
+        boolean text = isText(resolver, uri);
+        // Taken on the writer thread, after the text just committed. The snapshot is immutable,
+        // so it is written on the file thread while the user keeps editing.
+        itemListStore.execute(itemListModel -> {
+            List<Item> snapshot = itemListModel.getSnapshot();
+            fileExecutor.execute(() -> {
+                try (OutputStream out = resolver.openOutputStream(uri, "wt")) {
+                    if (out == null) {
+                        throw new IOException("Cannot write " + uri);
+                    }
+                    WritableByteChannel channel = Channels.newChannel(out);
+                    int count = ItemFiles.export(snapshot,
+                            text ? new TextItemWriter(channel) : new BinaryItemWriter(channel));
+                    showMessage(R.string.export_done, count);
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not export the list", e);
+                    showMessage(R.string.export_failed, 0);
+                }
+            });
+        });
+    }
+
+    // Adds the items of the document the user picked to the list, as new items. The file is
+    // read on the file thread and added in chunks, each one a single change of the list, so
+    // the list stays usable while a large catalog comes in.
+    public void importList(Uri uri) {
+        ContentResolver resolver = getApplication().getContentResolver();
+        boolean text = isText(resolver, uri);
+        // Queued behind the restore, so the ids handed out are past all restored ones.
+        itemListStore.execute(itemListModel -> fileExecutor.execute(() -> {
+            try (InputStream in = resolver.openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("Cannot read " + uri);
+                }
+                ReadableByteChannel channel = Channels.newChannel(in);
+                // importInChunks() gives every item a new id, the ids read are thrown away.
+                ItemReader reader = text
+                        ? new TextItemReader(channel, () -> 0)
+                        : new BinaryItemReader(channel);
+                // At most one chunk waits for the writer thread while the next one is read,
+                // so a file larger than memory can still be imported.
+                List<Future<?>> pending = new ArrayList<>();
+                int count = ItemFiles.importInChunks(reader, itemIdGenerator::nextId, ItemFiles.CHUNK_SIZE,
+                        chunk -> {
+                            awaitChunks(pending);
+                            pending.add(itemListStore.submit(model -> {
+                                model.addAll(chunk);
+                                return null;
+                            }));
+                        });
+                awaitChunks(pending);
+                showMessage(R.string.import_done, count);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Could not import the list", e);
+                showMessage(R.string.import_failed, 0);
+            }
+        }));
+    }
+
+    // Opens a backup (a file in the binary format) to browse without importing it, and hands it
+    // to 'opened' on the UI thread. Opening reads the file once to find its pages, on the file
+    // thread; the caller closes the list when done.
+    public void openBackup(Uri uri, Consumer<PagedItemList> opened) {
+        ContentResolver resolver = getApplication().getContentResolver();
+        fileExecutor.execute(() -> {
+            try {
+                ParcelFileDescriptor file = resolver.openFileDescriptor(uri, "r");
+                if (file == null) {
+                    throw new IOException("Cannot read " + uri);
+                }
+                // Closing the channel closes the descriptor as well. Pages are read with
+                // positional reads, so the document has to be a real file, not a stream.
+                FileChannel channel = new ParcelFileDescriptor.AutoCloseInputStream(file).getChannel();
+                BinaryItemPages pages = BinaryItemPages.open(channel, BACKUP_PAGE_SIZE);
+                PagedItemList list = new PagedItemList(pages, BACKUP_PAGES, BACKUP_PREFETCH_PAGES,
+                        pageExecutor, mainHandler::post);
+                mainHandler.post(() -> opened.accept(list));
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Could not open the backup", e);
+                showMessage(R.string.browse_backup_failed, 0);
+            }
+        });
+    }
+
+    private static void awaitChunks(List<Future<?>> pending) {
+        try {
+            for (Future<?> future : pending) {
+                future.get();
+            }
+            pending.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import cancelled", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import failed", e.getCause());
+        }
+    }
+
+    private static boolean isText(ContentResolver resolver, Uri uri) {
+        String type = resolver.getType(uri);
+        return type != null && type.startsWith("text/");
+    }
+
+    // Shows a short message on the UI thread. 'count' fills in the %d of the message, if any.
+    private void showMessage(@StringRes int message, int count) {
+        mainHandler.post(() -> Toast.makeText(getApplication(),
+                getApplication().getString(message, count), Toast.LENGTH_SHORT).show());
+    }
+
+    // Hands a snapshot of the list to the adapter. While a filter is typed, only the matching
+    // items are shown: the index finds them and FilteredItemList presents them without copying.
+    // SectionedItemList then adds the section headers, also without copying.
+    // Runs on the writer thread, where the index and the positions of the model match the
+    // snapshot, i.e. with the snapshot the model has just published.
+    private void showList(ItemListModel itemListModel, List<Item> snapshot) {
+        showList(itemListModel, snapshot, null);
+    }
+
+    private void showList(ItemListModel itemListModel, List<Item> snapshot, @Nullable Runnable commitCallback) {
+        List<Item> shown;
+        if (filterQuery.isEmpty()) {
+            shown = snapshot;
+        } else {
+            long start = System.nanoTime();
+            shown = new FilteredItemList(snapshot, itemSearchIndex.search(filterQuery), itemListModel::indexOf);
+            filterTimes.record(System.nanoTime() - start);
+        }
+        SectionedItemList rows = new SectionedItemList(shown, collapsedSections);
+        shownRows = rows;
+        mainHandler.post(() -> itemAdapter.submitList(rows, commitCallback));
+    }
+
+    // Called when the activity is finished for good: write everything and stop the
+    // background threads.
+    @Override
+    protected void onCleared() {
+        itemAdapter.commitPendingText();
+        // Stops an import or export still running.
+        fileExecutor.shutdownNow();
+        pageExecutor.shutdownNow();
+        // Nothing here waits for the disk. The journal and the history are closed by the last
+        // task on the writer thread, after the changes still queued have been handed to them,
+        // and each background thread finishes its own writes and closes its own files.
+        itemListStore.execute(itemListModel -> {
+            itemListModel.removeChangeListener(itemJournal);
+            itemJournal.close();
+            purchaseHistory.close();
+        });
+        itemListStore.close();
+    }
+
+    // Method to add a new item to the list
+    @Override
+    public void addItem() {
+        // Create a new empty item with a unique id and add it to the end of the list.
+        // The id is taken on the writer thread, after the restored ids have been seen.
+        itemListStore.execute(itemListModel -> {
+            // There already is a blank row when text pasted into it was split into items just
+            // before (see addPastedLines()), which replaces the blank row itself.
+            int size = itemListModel.size();
+            if (size > 0) {
+                Item last = itemListModel.get(size - 1);
+                if (last.isNewEntry() && last.getText().isEmpty()) {
+                    return;
+                }
+            }
+            itemListModel.add(new Item(itemIdGenerator.nextId(), ""));
+        });
+    }
+
+    // Method to remove the item with the given id
+    @Override
+    public void removeItem(long id) {
+        itemListStore.execute(itemListModel -> itemListModel.remove(id));
+    }
+
+    // Method to set the importance level for an item.
+    // The item is moved straight to the end of its importance group, so no full sort is needed.
+    // Placing a new entry this way puts its text into the purchase history.
+    @Override
+    public void setItemImportance(long id, Item.ImportanceLevel importance) {
+        itemListStore.execute(itemListModel -> {
+            int index = itemListModel.indexOf(id);
+            if (index >= 0 && itemListModel.get(index).isNewEntry()) {
+                purchaseHistory.record(itemListModel.get(index).getText());
+            }
+            itemListModel.setImportance(id, importance);
+        });
+    }
+
+    // Method to save the text the user typed for an item
+    @Override
+    public void setItemText(long id, String text) {
+        if (text.indexOf('\n') >= 0) {
+            itemListStore.execute(itemListModel -> addPastedLines(itemListModel, id, text));
+        } else {
+            itemListStore.execute(itemListModel -> itemListModel.setText(id, text));
+        }
+    }
+
+    // Turns text with several lines (e.g. a pasted recipe) into one item per line, added to the
+    // list as one transaction, so the list is diffed and laid out once for all of them.
+    // Runs on the writer thread.
+    private void addPastedLines(ItemListModel itemListModel, long id, String text) {
+        int index = itemListModel.indexOf(id);
+        if (index < 0) {
+            return;
+        }
+        Item item = itemListModel.get(index);
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\\R")) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line.trim());
+            }
+        }
+        itemListModel.batch(() -> {
+            List<Item> newItems = new ArrayList<>();
+            if (item.isNewEntry()) {
+                // Pasted into the blank row: every line becomes a NORMAL item, and a fresh
+                // blank row replaces the one holding the pasted text.
+                itemListModel.remove(id);
+                for (String line : lines) {
+                    newItems.add(new Item(itemIdGenerator.nextId(), line, false));
+                    purchaseHistory.record(line);
+                }
+                newItems.add(new Item(itemIdGenerator.nextId(), ""));
+            } else {
+                // Pasted into an item: it keeps the first line, the others get its importance.
+                itemListModel.setText(id, lines.isEmpty() ? "" : lines.get(0));
+                for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+                    Item newItem = new Item(itemIdGenerator.nextId(), line, false);
+                    newItem.setImportance(item.getImportance());
+                    newItems.add(newItem);
+                }
+            }
+            itemListModel.addAll(newItems);
+        });
+    }
+
+    // Hides or shows the items of a section. The rows shown are the same apart from that
+    // section, so the adapter gets the change as one range, without a diff.
+    @Override
+    public void setSectionCollapsed(int section, boolean collapsed) {
+        itemListStore.execute(itemListModel -> {
+            SectionedItemList previous = shownRows;
+            if (previous == null || collapsedSections[section] == collapsed) {
+                return;
+            }
+            collapsedSections[section] = collapsed;
+            SectionedItemList rows = previous.withCollapsed(section, collapsed);
+            shownRows = rows;
+            int header = previous.headerRow(section);
+            int count = previous.sectionSize(section);
+            mainHandler.post(() -> itemAdapter.submitChange(previous, rows, changes -> {
+                if (header < 0 || count == 0) {
+                    return;
+                }
+                if (collapsed) {
+                    changes.onRemoved(header + 1, count);
+                } else {
+                    changes.onInserted(header + 1, count);
+                }
+            }));
+        });
+    }
+
+    // Method to show or hide the importance buttons of an item
+    @Override
+    public void setItemOptionsExpanded(long id, boolean expanded) {
+        itemListStore.execute(itemListModel -> itemListModel.setOptionsExpanded(id, expanded));
+    }
+}
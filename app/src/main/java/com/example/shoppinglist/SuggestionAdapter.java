@@ -0,0 +1,55 @@
+package com.example.shoppinglist;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+import androidx.annotation.NonNull;
+import java.util.Collections;
+import java.util.List;
+
+// This class feeds the drop-down under a row's text field with earlier purchases that start
+// with what has been typed so far, best ranked first (see PurchaseHistory).
+//
+// The Filter computes the suggestions on its own background thread, so typing never waits
+// for the history to be loaded or searched.
+public class SuggestionAdapter extends ArrayAdapter<String> {
+
+    // Most suggestions shown at once.
+    static final int MAX_SUGGESTIONS = 5;
+
+    private final PurchaseHistory history;
+
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            List<String> suggestions = constraint == null
+                    ? Collections.<String>emptyList()
+                    : history.suggest(constraint.toString(), MAX_SUGGESTIONS);
+            FilterResults results = new FilterResults();
+            results.values = suggestions;
+            results.count = suggestions.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            // Replace all suggestions at once, with one notification instead of one per entry.
+            setNotifyOnChange(false);
+            clear();
+            addAll((List<String>) results.values);
+            notifyDataSetChanged();
+        }
+    };
+
+    public SuggestionAdapter(Context context, PurchaseHistory history) {
+        super(context, android.R.layout.simple_dropdown_item_1line);
+        this.history = history;
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+}
@@ -0,0 +1,32 @@
+// Android-free part of the app: the Item model and the list logic.
+// Being a plain JVM module, it can be unit tested and benchmarked without a device.
+plugins {
+    `java-library`
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation("junit:junit:4.13.2")
+}
+
+// Benchmarks live in src/jmh and run with: ./gradlew :core:jmh
+// Results are written to build/results/jmh/results.json; compare them with the checked-in
+// jmh-baseline.json (e.g. on https://jmh.morethan.io) to spot regressions.
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    // Adds allocation and GC time per benchmark to the results.
+    profilers.add("gc")
+}
@@ -0,0 +1,76 @@
+package com.example.shoppinglist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// What startup reads before something can be shown: the first screen file, which should take
+// the same time for any list size, against restoring the whole list from the snapshot and journal.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColdStartBenchmark {
+
+    private static final String[] WORDS = {
+            "milk", "bread", "cheese", "apples", "tomatoes", "pasta", "rice", "coffee", "butter", "eggs"
+    };
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private File dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        dir = Files.createTempDirectory("journal").toFile();
+        ItemListModel model = new ItemListModel();
+        ItemJournal journal = new ItemJournal(dir, model::getSnapshot);
+        model.setItems(journal.restore());
+        model.addChangeListener(journal);
+        for (int i = 0; i < size; i++) {
+            Item item = new Item(i + 1, WORDS[i % WORDS.length] + " " + i, false);
+            item.setImportance(Item.ImportanceLevel.values()[i % 3]);
+            model.add(item);
+        }
+        journal.close();
+        journal.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public List<Item> readFirstScreen() {
+        return new ItemJournal(dir, null).readFirstScreen();
+    }
+
+    @Benchmark
+    public ItemListModel restoreAll() throws IOException {
+        ItemListModel model = new ItemListModel();
+        ItemJournal journal = new ItemJournal(dir, model::getSnapshot);
+        try {
+            model.setItems(journal.restore());
+        } finally {
+            journal.close();
+        }
+        return model;
+    }
+}
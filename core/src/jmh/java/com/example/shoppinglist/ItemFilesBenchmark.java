@@ -0,0 +1,118 @@
+package com.example.shoppinglist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Throughput of exporting and importing a catalog-sized list through file channels, in the
+// binary and the text format. read* only parses the file, import* runs the whole import
+// path: reading, new ids and adding the chunks to an ItemListModel.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ItemFilesBenchmark {
+
+    private static final String[] WORDS = {
+            "milk", "bread", "cheese", "apples", "tomatoes", "pasta", "rice", "coffee", "butter", "eggs"
+    };
+
+    @Param({"100000"})
+    public int size;
+
+    private List<Item> items;
+    private File binaryFile;
+    private File textFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        items = new ArrayList<>(size);
+        long id = 1_700_000_000_000L * 1024;
+        for (int i = 0; i < size; i++) {
+            Item item = new Item(id + i * 37L, WORDS[i % WORDS.length] + " " + i, false);
+            item.setImportance(Item.ImportanceLevel.values()[i % 3]);
+            items.add(item);
+        }
+        binaryFile = File.createTempFile("items", ".shl");
+        textFile = File.createTempFile("items", ".txt");
+        exportBinary();
+        exportText();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        binaryFile.delete();
+        textFile.delete();
+    }
+
+    @Benchmark
+    public int exportBinary() throws IOException {
+        return ItemFiles.export(items, new BinaryItemWriter(openForWriting(binaryFile)));
+    }
+
+    @Benchmark
+    public int exportText() throws IOException {
+        return ItemFiles.export(items, new TextItemWriter(openForWriting(textFile)));
+    }
+
+    @Benchmark
+    public int readBinary() throws IOException {
+        return readAll(new BinaryItemReader(FileChannel.open(binaryFile.toPath())));
+    }
+
+    @Benchmark
+    public int readText() throws IOException {
+        AtomicLong ids = new AtomicLong();
+        return readAll(new TextItemReader(FileChannel.open(textFile.toPath()), ids::incrementAndGet));
+    }
+
+    @Benchmark
+    public ItemListModel importBinary() throws IOException {
+        return importInto(new BinaryItemReader(FileChannel.open(binaryFile.toPath())));
+    }
+
+    @Benchmark
+    public ItemListModel importText() throws IOException {
+        AtomicLong ids = new AtomicLong();
+        return importInto(new TextItemReader(FileChannel.open(textFile.toPath()), ids::incrementAndGet));
+    }
+
+    private static int readAll(ItemReader reader) throws IOException {
+        int count = 0;
+        try {
+            while (reader.read() != null) {
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+    private static ItemListModel importInto(ItemReader reader) throws IOException {
+        ItemListModel model = new ItemListModel();
+        AtomicLong ids = new AtomicLong();
+        ItemFiles.importInChunks(reader, ids::incrementAndGet, ItemFiles.CHUNK_SIZE, model::addAll);
+        return model;
+    }
+
+    private static FileChannel openForWriting(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
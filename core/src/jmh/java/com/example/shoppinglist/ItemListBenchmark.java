@@ -0,0 +1,118 @@
+package com.example.shoppinglist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks for the list operations the UI triggers, measured at different list sizes.
+//
+// Each benchmark leaves the list the same size it found it (e.g. it adds and then removes an
+// item), so the numbers stay comparable over all iterations.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ItemListBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private ItemListModel model;
+    private ItemIdGenerator ids;
+    private List<Item> placedItems;
+    private List<Item> changedItems;
+    private long middleId;
+    private long movingId;
+    private boolean movingUp;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ids = new ItemIdGenerator();
+        placedItems = new ArrayList<>(size);
+        changedItems = new ArrayList<>(size);
+        Item.ImportanceLevel[] levels = Item.ImportanceLevel.values();
+        for (int i = 0; i < size; i++) {
+            Item item = new Item(ids.nextId(), "item " + i, false);
+            item.setImportance(levels[i % levels.length]);
+            placedItems.add(item);
+
+            // Every third item gets a different text, every fifth a different importance.
+            Item changed = new Item(item);
+            if (i % 3 == 0) changed.setText("changed " + i);
+            if (i % 5 == 0) changed.setImportance(levels[(i + 1) % levels.length]);
+            changedItems.add(changed);
+        }
+        model = new ItemListModel();
+        model.setItems(placedItems);
+        middleId = model.get(size / 2).getId();
+        movingId = model.get(size / 3).getId();
+    }
+
+    // Typing a new entry and placing it: add a blank item, then give it an importance.
+    // The item is removed again to keep the size stable.
+    @Benchmark
+    public void insertAndPlace() {
+        long id = ids.nextId();
+        model.add(new Item(id, ""));
+        model.setImportance(id, Item.ImportanceLevel.NORMAL);
+        model.remove(id);
+    }
+
+    // Removing an item from the middle of the list (and putting it back).
+    @Benchmark
+    public void removeFromMiddle() {
+        Item item = model.get(size / 2);
+        model.remove(item.getId());
+        model.add(item);
+    }
+
+    // Changing the importance of an existing item, which moves it to another group.
+    @Benchmark
+    public void moveBetweenImportanceLevels() {
+        movingUp = !movingUp;
+        model.setImportance(movingId, movingUp ? Item.ImportanceLevel.IMPORTANT : Item.ImportanceLevel.UNIMPORTANT);
+    }
+
+    // Re-ordering a whole list, as done after restoring it from storage.
+    @Benchmark
+    public List<Item> resortAll() {
+        model.setItems(placedItems);
+        return model.getSnapshot();
+    }
+
+    // Looking up an item by id, done for every click on a row.
+    @Benchmark
+    public int findById() {
+        return model.indexOf(middleId);
+    }
+
+    // Searching the item texts for a word, as a filter bar would do on each keystroke.
+    @Benchmark
+    public int searchText() {
+        int matches = 0;
+        for (Item item : model.getSnapshot()) {
+            if (item.getText().contains("99")) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    // Deciding for every row what has to be redrawn between two versions of the list.
+    @Benchmark
+    public void bindDecisions(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(ItemChanges.between(placedItems.get(i), changedItems.get(i)));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.shoppinglist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks for filtering the list through ItemSearchIndex, to compare with the linear scan
+// in ItemListBenchmark.searchText.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ItemSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "milk", "bread", "cheese", "apples", "tomatoes", "pasta", "rice", "coffee", "butter", "eggs"
+    };
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private ItemListModel model;
+    private ItemSearchIndex index;
+    private long editedId;
+    private boolean edited;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(i + 1, WORDS[i % WORDS.length] + " " + i, false));
+        }
+        model = new ItemListModel();
+        model.setItems(items);
+        index = new ItemSearchIndex();
+        index.rebuild(model.getSnapshot());
+        editedId = size / 2 + 1;
+    }
+
+    // A query longer than a trigram: candidates come from the rarest trigram and are verified.
+    @Benchmark
+    public int searchWord() {
+        return index.search("Chéese 9").size();
+    }
+
+    // A query of up to 3 characters is answered by a single posting set.
+    @Benchmark
+    public int searchShort() {
+        return index.search("ric").size();
+    }
+
+    // Filtering the snapshot shown by the adapter down to the matches.
+    @Benchmark
+    public int filterSnapshot() {
+        return new FilteredItemList(model.getSnapshot(), index.search("butter 12"), model::indexOf).size();
+    }
+
+    // Updating the index after the user changed the text of one item.
+    @Benchmark
+    public void updateText() {
+        edited = !edited;
+        index.onItemTextChanged(editedId, edited ? "oat milk" : "whole milk");
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.shoppinglist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Browsing a backup a page at a time: open scans the whole file once to index its pages,
+// loadPage reads one page from the middle of it (what scrolling costs per page).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PagingBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"100000"})
+    public int size;
+
+    private File file;
+    private BinaryItemPages pages;
+    private int page;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Item> items = new ArrayList<>(size);
+        long id = 1_700_000_000_000L * 1024;
+        for (int i = 0; i < size; i++) {
+            Item item = new Item(id + i * 37L, "item " + i, false);
+            item.setImportance(Item.ImportanceLevel.values()[i % 3]);
+            items.add(item);
+        }
+        file = File.createTempFile("items", ".shl");
+        ItemFiles.export(items, new BinaryItemWriter(FileChannel.open(file.toPath(), StandardOpenOption.WRITE)));
+        pages = BinaryItemPages.open(FileChannel.open(file.toPath()), PAGE_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pages.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public int open() throws IOException {
+        try (BinaryItemPages opened = BinaryItemPages.open(FileChannel.open(file.toPath()), PAGE_SIZE)) {
+            return opened.size();
+        }
+    }
+
+    @Benchmark
+    public List<Item> loadPage() throws IOException {
+        // Pages all over the file, as when jumping with the scroll bar.
+        page = (page + 7919) % (size / PAGE_SIZE);
+        return pages.loadPage(page);
+    }
+}
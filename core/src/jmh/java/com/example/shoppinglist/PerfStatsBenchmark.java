@@ -0,0 +1,41 @@
+package com.example.shoppinglist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+// What measuring costs: one timed bind is two System.nanoTime() calls and a Histogram.record().
+// recordContended has several threads recording into the same histogram, as the UI thread and
+// the writer thread do into a shared PerfStats.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PerfStatsBenchmark {
+
+    private final Histogram histogram = new PerfStats().histogram("bench_ns");
+
+    @Benchmark
+    public void record() {
+        histogram.record(System.nanoTime() & 0xFFFFF);
+    }
+
+    @Benchmark
+    public long timeAndRecord() {
+        long started = System.nanoTime();
+        long elapsed = System.nanoTime() - started;
+        histogram.record(elapsed);
+        return elapsed;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        histogram.record(System.nanoTime() & 0xFFFFF);
+    }
+}
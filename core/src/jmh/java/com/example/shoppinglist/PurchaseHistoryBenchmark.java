@@ -0,0 +1,72 @@
+package com.example.shoppinglist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks for the suggestions shown while typing, on a full history (MAX_ENTRIES texts).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PurchaseHistoryBenchmark {
+
+    private static final String[] WORDS = {
+            "milk", "bread", "cheese", "apples", "tomatoes", "pasta", "rice", "coffee", "butter", "eggs"
+    };
+
+    // As many as the drop-down shows.
+    private static final int SUGGESTIONS = 5;
+
+    private File file;
+    private PurchaseHistory history;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("history", ".bin");
+        file.delete();
+        history = new PurchaseHistory(file);
+        for (int i = 0; i < PurchaseHistory.MAX_ENTRIES; i++) {
+            String text = WORDS[i % WORDS.length] + " " + i;
+            // Some texts are bought more often, so the ranking has something to do.
+            for (int times = 0; times <= i % 4; times++) {
+                history.record(text);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        history.close();
+        history.awaitTermination(1, TimeUnit.MINUTES);
+        file.delete();
+    }
+
+    // The first letter typed: a wide range, of which only the best few are taken.
+    @Benchmark
+    public List<String> suggestOneLetter() {
+        return history.suggest("c", SUGGESTIONS);
+    }
+
+    // A longer prefix narrows the range down to a few entries.
+    @Benchmark
+    public List<String> suggestPrefix() {
+        return history.suggest("cheese 1", SUGGESTIONS);
+    }
+
+    // Recording a purchase that is already in the history.
+    @Benchmark
+    public void recordAgain() {
+        history.record("milk 10");
+    }
+}
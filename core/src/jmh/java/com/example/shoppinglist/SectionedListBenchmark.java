@@ -0,0 +1,65 @@
+package com.example.shoppinglist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The sectioned rows the adapter gets for every snapshot: building them, looking up a row
+// (what every bind does) and collapsing a section, at different list sizes. None of them
+// should grow more than logarithmically with the list.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SectionedListBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private List<Item> snapshot;
+    private SectionedItemList rows;
+    private final boolean[] collapsed = new boolean[SectionedItemList.SECTIONS];
+    private int row;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ItemIdGenerator ids = new ItemIdGenerator();
+        List<Item> items = new ArrayList<>(size);
+        Item.ImportanceLevel[] levels = Item.ImportanceLevel.values();
+        for (int i = 0; i < size; i++) {
+            Item item = new Item(ids.nextId(), "item " + i, false);
+            item.setImportance(levels[i % levels.length]);
+            items.add(item);
+        }
+        ItemListModel model = new ItemListModel();
+        model.setItems(items);
+        snapshot = model.getSnapshot();
+        rows = new SectionedItemList(snapshot, collapsed);
+    }
+
+    @Benchmark
+    public SectionedItemList build() {
+        return new SectionedItemList(snapshot, collapsed);
+    }
+
+    // Walks through the rows with a large odd step, so every lookup lands somewhere else.
+    @Benchmark
+    public Item getRow() {
+        row = (row + 7919) % rows.size();
+        return rows.get(row);
+    }
+
+    @Benchmark
+    public SectionedItemList collapseAndExpand() {
+        return rows.withCollapsed(1, true).withCollapsed(1, false);
+    }
+}
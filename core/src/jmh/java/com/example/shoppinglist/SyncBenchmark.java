@@ -0,0 +1,88 @@
+package com.example.shoppinglist;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks for syncing a shared list through the in-process SyncServer.
+//
+// - editAndSync: one device changes one item and syncs, the other device syncs to get it.
+//   The Traffic counters show the bytes that took per round (bytes / rounds).
+// - sendFullList: the first sync of a device holding the whole list, for comparison: the bytes
+//   of sending every item, and how fast the server merges a batch of 'size' new items.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SyncBenchmark {
+
+    private static final String[] WORDS = {
+            "milk", "bread", "cheese", "apples", "tomatoes", "pasta", "rice", "coffee", "butter", "eggs"
+    };
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private SyncServer server;
+    private ItemListModel phone;
+    private SyncClient phoneClient;
+    private ItemListModel tablet;
+    private SyncClient tabletClient;
+    private int edits;
+
+    // The first request of a device holding the whole list.
+    private byte[] fullListRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new SyncServer();
+        phone = new ItemListModel();
+        phoneClient = new SyncClient(1);
+        phone.addChangeListener(phoneClient);
+        tablet = new ItemListModel();
+        tabletClient = new SyncClient(2);
+        tablet.addChangeListener(tabletClient);
+
+        for (int i = 0; i < size; i++) {
+            phone.add(new Item(i, WORDS[i % WORDS.length] + " " + i));
+            phone.setImportance(i, Item.ImportanceLevel.values()[i % 3]);
+        }
+        fullListRequest = phoneClient.createRequest();
+        phoneClient.sync(phone, server);
+        tabletClient.sync(tablet, server);
+    }
+
+    @Benchmark
+    public void editAndSync(Traffic traffic) throws IOException {
+        long before = server.bytesReceived() + server.bytesSent();
+        int id = (edits++ * 7919) % size;
+        phone.setText(id, WORDS[edits % WORDS.length] + " " + edits);
+        phoneClient.sync(phone, server);
+        tabletClient.sync(tablet, server);
+        traffic.bytes += server.bytesReceived() + server.bytesSent() - before;
+        traffic.rounds++;
+    }
+
+    @Benchmark
+    public void sendFullList(Traffic traffic) throws IOException {
+        byte[] response = new SyncServer().exchange(fullListRequest);
+        traffic.bytes += fullListRequest.length + response.length;
+        traffic.rounds++;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Traffic {
+        public long bytes;
+        public long rounds;
+    }
+}
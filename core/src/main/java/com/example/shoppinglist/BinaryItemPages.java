@@ -0,0 +1,143 @@
+package com.example.shoppinglist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Reads a file written by BinaryItemWriter (e.g. a backup) a page at a time, so a list of any
+// length can be shown without reading all of it into memory, see PagedItemList.
+//
+// Opening the file reads it through once, without keeping the items, to note where every page
+// starts and the id before it (ids are stored relative to the previous one): 16 bytes per page.
+// A page is then read with positional reads of just its bytes, so several threads can read
+// pages at the same time.
+public class BinaryItemPages implements ItemPageSource {
+
+    private final FileChannel file;
+    private final int pageSize;
+    private final int size;
+
+    // Per page: where its first item starts, and the id of the item before it.
+    private final long[] offsets;
+    private final long[] previousIds;
+
+    // Where the end marker starts, i.e. the end of the last page.
+    private final long end;
+
+    private BinaryItemPages(FileChannel file, int pageSize, int size, long[] offsets, long[] previousIds,
+                            long end) {
+        this.file = file;
+        this.pageSize = pageSize;
+        this.size = size;
+        this.offsets = offsets;
+        this.previousIds = previousIds;
+        this.end = end;
+    }
+
+    // Checks the whole file and notes where its pages start. The file is closed with the
+    // pages (also when it is not a complete shopping list file, then right away).
+    public static BinaryItemPages open(FileChannel file, int pageSize) throws IOException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size " + pageSize);
+        }
+        try {
+            BinaryItemReader reader = new BinaryItemReader(readFrom(file, 0));
+            long[] offsets = new long[16];
+            long[] previousIds = new long[16];
+            int count = 0;
+            long end = reader.position();
+            while (true) {
+                long position = reader.position();
+                long previousId = reader.previousId();
+                if (reader.read() == null) {
+                    break;
+                }
+                if (count % pageSize == 0) {
+                    int page = count / pageSize;
+                    if (page == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, page * 2);
+                        previousIds = Arrays.copyOf(previousIds, page * 2);
+                    }
+                    offsets[page] = position;
+                    previousIds[page] = previousId;
+                }
+                count++;
+                end = reader.position();
+            }
+            int pages = (count + pageSize - 1) / pageSize;
+            return new BinaryItemPages(file, pageSize, count, Arrays.copyOf(offsets, pages),
+                    Arrays.copyOf(previousIds, pages), end);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int pageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public List<Item> loadPage(int page) throws IOException {
+        if (page < 0 || page >= offsets.length) {
+            throw new IndexOutOfBoundsException("Page: " + page + ", Pages: " + offsets.length);
+        }
+        long from = offsets[page];
+        long to = page + 1 < offsets.length ? offsets[page + 1] : end;
+        int count = Math.min(pageSize, size - page * pageSize);
+        BinaryItemReader reader = new BinaryItemReader(
+                new ChannelInput(readFrom(file, from), (int) Math.min(to - from, ChannelInput.BUFFER_SIZE)),
+                previousIds[page], (long) page * pageSize);
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Item item = reader.read();
+            if (item == null) {
+                throw new IOException("Shopping list file changed while reading");
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    // The file from 'position' on, read with positional reads, which leave the position of the
+    // file alone and may run on several threads at once.
+    private static ReadableByteChannel readFrom(FileChannel file, long position) {
+        return new ReadableByteChannel() {
+            private long next = position;
+
+            @Override
+            public int read(ByteBuffer buffer) throws IOException {
+                int read = file.read(buffer, next);
+                if (read > 0) {
+                    next += read;
+                }
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return file.isOpen();
+            }
+
+            @Override
+            public void close() {
+                // The file stays open for the other pages.
+            }
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.shoppinglist;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+// Reads items written by BinaryItemWriter (see there for the format), a buffer full of input
+// at a time.
+public class BinaryItemReader implements ItemReader {
+
+    // Longest text we accept; anything longer means the input is damaged.
+    static final int MAX_TEXT_LENGTH = 1 << 20;
+
+    private final ChannelInput in;
+    private long previousId;
+    private long count;
+    private boolean ended;
+
+    // Reads and checks the header right away, so a file of another kind is rejected before
+    // anything is imported.
+    public BinaryItemReader(ReadableByteChannel channel) throws IOException {
+        in = new ChannelInput(channel);
+        int magic = 0;
+        for (int i = 0; i < 4 && in.request(1); i++) {
+            magic = magic << 8 | in.readByte();
+        }
+        if (magic != BinaryItemWriter.MAGIC) {
+            throw new IOException("Not a shopping list file");
+        }
+        int version = in.readByte();
+        if (version != BinaryItemWriter.VERSION) {
+            throw new IOException("Unsupported shopping list version " + version);
+        }
+    }
+
+    // Reads on from the middle of a file, e.g. from the start of a page (see BinaryItemPages):
+    // 'previousId' is the id of the item before and 'count' the number of items before it.
+    BinaryItemReader(ChannelInput in, long previousId, long count) {
+        this.in = in;
+        this.previousId = previousId;
+        this.count = count;
+    }
+
+    @Override
+    public Item read() throws IOException {
+        if (ended) {
+            return null;
+        }
+        int flags = in.readByte();
+        if (flags == BinaryItemWriter.END) {
+            ended = true;
+            long expected = in.readVarLong();
+            if (expected != count || !in.atEnd()) {
+                throw new IOException("Damaged shopping list file");
+            }
+            return null;
+        }
+        int importance = flags & BinaryItemWriter.IMPORTANCE_MASK;
+        if ((flags & ~(BinaryItemWriter.IMPORTANCE_MASK | BinaryItemWriter.NEW_ENTRY
+                | BinaryItemWriter.OPTIONS_EXPANDED)) != 0
+                || importance >= Item.ImportanceLevel.values().length) {
+            throw new IOException("Bad item flags " + flags);
+        }
+        long zigzag = in.readVarLong();
+        long id = previousId + ((zigzag >>> 1) ^ -(zigzag & 1));
+        previousId = id;
+        long length = in.readVarLong();
+        if (length < 0 || length > MAX_TEXT_LENGTH) {
+            throw new IOException("Bad text length " + length);
+        }
+        Item item = new Item(id, in.readUtf8((int) length), (flags & BinaryItemWriter.NEW_ENTRY) != 0);
+        item.setImportance(Item.ImportanceLevel.values()[importance]);
+        item.setOptionsExpanded((flags & BinaryItemWriter.OPTIONS_EXPANDED) != 0);
+        count++;
+        return item;
+    }
+
+    // Where the next item starts, counted from the start of the input.
+    long position() {
+        return in.position();
+    }
+
+    // The id of the item read last (0 before the first one), which the next id is stored
+    // relative to.
+    long previousId() {
+        return previousId;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
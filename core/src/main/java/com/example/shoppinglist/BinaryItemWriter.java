@@ -0,0 +1,70 @@
+package com.example.shoppinglist;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// Writes items in the compact binary format, e.g. to back up a list or share it with the app
+// on another phone. BinaryItemReader reads it back. The format is:
+//
+//   [magic "SHLB"][version]
+//   per item: [flags][id][text length][text as UTF-8]
+//   at the end: [END][number of items]
+//
+// The flags byte holds the importance and the new entry and options states. Numbers are
+// varints, and each id is stored as the (zigzag encoded) difference to the one before, which is
+// small for lists created on one device. The end marker and count let the reader tell a
+// complete file from one that was cut off.
+public class BinaryItemWriter implements ItemWriter {
+
+    static final int MAGIC = 0x53484C42; // "SHLB"
+    static final int VERSION = 1;
+
+    static final int IMPORTANCE_MASK = 0x3;
+    static final int NEW_ENTRY = 0x4;
+    static final int OPTIONS_EXPANDED = 0x8;
+    static final int END = 0x80;
+
+    private final ChannelOutput out;
+    private long previousId;
+    private long count;
+
+    public BinaryItemWriter(WritableByteChannel channel) throws IOException {
+        out = new ChannelOutput(channel);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            out.writeByte(MAGIC >>> shift);
+        }
+        out.writeByte(VERSION);
+    }
+
+    @Override
+    public void write(Item item) throws IOException {
+        out.writeByte(item.getImportance().ordinal()
+                | (item.isNewEntry() ? NEW_ENTRY : 0)
+                | (item.isOptionsExpanded() ? OPTIONS_EXPANDED : 0));
+        long delta = item.getId() - previousId;
+        out.writeVarLong((delta << 1) ^ (delta >> 63));
+        previousId = item.getId();
+        byte[] text = item.getText().getBytes(StandardCharsets.UTF_8);
+        out.writeVarLong(text.length);
+        out.write(text);
+        count++;
+    }
+
+    // Writes the end marker, flushes and closes the channel.
+    @Override
+    public void close() throws IOException {
+        try {
+            out.writeByte(END);
+            out.writeVarLong(count);
+        } finally {
+            out.close();
+        }
+    }
+
+    // Closes the channel without the end marker.
+    @Override
+    public void abort() throws IOException {
+        out.abort();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.shoppinglist;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// Reads a channel through one reused buffer, a buffer full at a time, for the item readers.
+// Only the part of the input that is being parsed is ever in memory.
+final class ChannelInput implements Closeable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer;
+    private boolean endOfInput;
+
+    // Bytes read from the channel so far.
+    private long channelBytes;
+
+    ChannelInput(ReadableByteChannel channel) {
+        this(channel, BUFFER_SIZE);
+    }
+
+    // With a smaller buffer, e.g. when only a known number of bytes (a page) will be read.
+    ChannelInput(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocate(bufferSize);
+        buffer.flip(); // Nothing read yet.
+    }
+
+    // Number of bytes parsed so far, i.e. where the next value starts in the input.
+    long position() {
+        return channelBytes - buffer.remaining();
+    }
+
+    // Makes at least 'count' bytes available, unless the input ends before. Returns whether
+    // there are that many.
+    boolean request(int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return true;
+        }
+        if (count > buffer.capacity()) {
+            // A single value larger than the buffer (e.g. a very long text).
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(count, buffer.capacity() * 2));
+            larger.put(buffer);
+            larger.flip();
+            buffer = larger;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < count && !endOfInput) {
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    endOfInput = true;
+                } else {
+                    channelBytes += read;
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+        return buffer.remaining() >= count;
+    }
+
+    // Whether everything has been read.
+    boolean atEnd() throws IOException {
+        return !request(1);
+    }
+
+    int readByte() throws IOException {
+        require(1);
+        return buffer.get() & 0xFF;
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Bad number");
+    }
+
+    String readUtf8(int length) throws IOException {
+        require(length);
+        String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return text;
+    }
+
+    // Reads up to the next line break ("\n" or "\r\n") and returns the line without it,
+    // or null at the end of the input. The last line does not need a line break.
+    String readLine(int maxLength) throws IOException {
+        int scanned = 0;
+        while (true) {
+            byte[] bytes = buffer.array();
+            int start = buffer.arrayOffset() + buffer.position();
+            // A '\n' byte is never part of a multi-byte UTF-8 character, so it can be searched
+            // for in the raw bytes.
+            for (int i = start + scanned; i < start + buffer.remaining(); i++) {
+                if (bytes[i] == '\n') {
+                    int length = i - start;
+                    int end = length > 0 && bytes[i - 1] == '\r' ? length - 1 : length;
+                    String line = new String(bytes, start, end, StandardCharsets.UTF_8);
+                    buffer.position(buffer.position() + length + 1);
+                    return line;
+                }
+            }
+            scanned = buffer.remaining();
+            if (scanned > maxLength) {
+                throw new IOException("Line longer than " + maxLength + " bytes");
+            }
+            if (!request(scanned + 1)) {
+                if (scanned == 0) {
+                    return null;
+                }
+                String line = readUtf8(scanned);
+                return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void require(int count) throws IOException {
+        if (!request(count)) {
+            throw new EOFException("Input ends in the middle of an item");
+        }
+    }
+}
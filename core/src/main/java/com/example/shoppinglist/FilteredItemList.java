@@ -0,0 +1,70 @@
+package com.example.shoppinglist;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongToIntFunction;
+
+// A read-only view of the items of a list snapshot that match a search.
+//
+// Only the positions of the matching items are stored; the items themselves are not copied,
+// and they keep the order they have in the full list. get() costs what get() of the source
+// costs, O(log n) for a snapshot, so this is not a RandomAccess list.
+public class FilteredItemList extends AbstractList<Item> {
+
+    private final List<Item> source;
+    private final int[] positions;
+    private final int size;
+
+    // Creates the view of all items in 'source' whose id is in 'matchingIds'. 'positionOf'
+    // returns the position of an id in 'source', or -1 (e.g. ItemListModel.indexOf(), which
+    // takes O(log n), for the snapshot the model has just published).
+    //
+    // A few matches are looked up one by one and sorted, in O(m log n), so a narrow filter costs
+    // nothing per item of the list. When many items match, walking the list is cheaper.
+    public FilteredItemList(List<Item> source, LongHashSet matchingIds, LongToIntFunction positionOf) {
+        this.source = source;
+        int matches = Math.min(source.size(), matchingIds.size());
+        this.positions = new int[matches];
+        int count = 0;
+        if ((long) matches * log2(source.size()) < source.size()) {
+            int[] found = new int[1];
+            matchingIds.forEach(id -> {
+                int position = positionOf.applyAsInt(id);
+                if (position >= 0) {
+                    positions[found[0]++] = position;
+                }
+            });
+            count = found[0];
+            Arrays.sort(positions, 0, count);
+        } else {
+            // Iterated rather than indexed, since get() of a PersistentItemList is not O(1).
+            int position = 0;
+            for (Iterator<Item> items = source.iterator(); items.hasNext() && count < matches; position++) {
+                if (matchingIds.contains(items.next().getId())) {
+                    positions[count++] = position;
+                }
+            }
+        }
+        this.size = count;
+    }
+
+
+    @Override
+    public Item get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return source.get(positions[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static int log2(int n) {
+        return 32 - Integer.numberOfLeadingZeros(n);
+    }
+}
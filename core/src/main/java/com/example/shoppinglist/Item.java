@@ -31,6 +31,25 @@ public class Item {
         this(id, text, true);  // By default, a new item will be marked as a new entry
     }
 
+    // Copy constructor: creates an independent copy of another item.
+    // The list model uses it to change an item without touching the instance that is
+    // still referenced by an older list snapshot.
+    public Item(Item other) {
+        this.id = other.id;
+        this.text = other.text;
+        this.isOptionsExpanded = other.isOptionsExpanded;
+        this.isNewEntry = other.isNewEntry;
+        this.importance = other.importance;
+    }
+
+    // Returns true if this item would be displayed exactly like the other one.
+    // Used together with getId() to find out which rows really changed between two lists.
+    public boolean hasSameContents(Item other) {
+        return text.equals(other.text)
+                && importance == other.importance
+                && isOptionsExpanded == other.isOptionsExpanded;
+    }
+
     // Standard getters and setters for the Item properties.
     public long getId() {
         return id;
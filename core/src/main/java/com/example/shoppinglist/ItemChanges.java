@@ -0,0 +1,36 @@
+package com.example.shoppinglist;
+
+// This class decides which parts of a row have to be redrawn when its item changes.
+//
+// The result is a set of flags, used by ItemAdapter as the payload of a change event, so that
+// onBindViewHolder only updates the affected views. It lives outside of the adapter so the
+// decision can be tested and benchmarked on a plain JVM.
+public final class ItemChanges {
+
+    // The text of the item changed (this may also show or hide the buttons).
+    public static final int TEXT = 1;
+
+    // The importance buttons were shown or hidden.
+    public static final int OPTIONS = 1 << 1;
+
+    // The background color changed, because of the importance or because the row moved.
+    public static final int BACKGROUND = 1 << 2;
+
+    private ItemChanges() {
+    }
+
+    // Returns the flags for everything that differs between the old and the new version of an item.
+    public static int between(Item oldItem, Item newItem) {
+        int changes = 0;
+        if (!oldItem.getText().equals(newItem.getText())) {
+            changes |= TEXT;
+        }
+        if (oldItem.isOptionsExpanded() != newItem.isOptionsExpanded()) {
+            changes |= OPTIONS;
+        }
+        if (oldItem.getImportance() != newItem.getImportance()) {
+            changes |= BACKGROUND;
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.shoppinglist;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// Exports a list to an ItemWriter and imports one from an ItemReader, streaming the items
+// instead of building the whole file or list in memory first.
+public final class ItemFiles {
+
+    // Items handed to the list at once while importing: large enough that a catalog of 100k
+    // items is only a few hundred list changes, small enough that each one is quick.
+    public static final int CHUNK_SIZE = 1000;
+
+    private ItemFiles() {
+    }
+
+    // Writes the items of a list (e.g. a snapshot) and closes the writer.
+    // The blank row (an empty new entry) is left out. Returns the number of items written.
+    // When writing fails, the writer is aborted rather than closed, so the output is not
+    // finished as if it were complete.
+    public static int export(List<Item> items, ItemWriter writer) throws IOException {
+        int count = 0;
+        try {
+            for (Item item : items) {
+                if (!(item.isNewEntry() && item.getText().isEmpty())) {
+                    writer.write(item);
+                    count++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                writer.abort();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        writer.close();
+        return count;
+    }
+
+    // Reads all items and hands them to 'chunks', up to 'chunkSize' at a time, e.g. to add each
+    // chunk to the list with ItemListModel.addAll() while the next one is read. Closes the reader.
+    //
+    // Every item gets a new id from 'newIds', so imported items never clash with the ones
+    // already on the list (or with each other when the same file is imported twice). They are
+    // placed with their importance and their options hidden; empty items are skipped.
+    // Returns the number of items imported. On an IOException, the chunks handed over before
+    // stay imported.
+    public static int importInChunks(ItemReader reader, LongSupplier newIds, int chunkSize,
+                                     Consumer<List<Item>> chunks) throws IOException {
+        int count = 0;
+        List<Item> chunk = new ArrayList<>(chunkSize);
+        try {
+            for (Item read = reader.read(); read != null; read = reader.read()) {
+                if (read.getText().isEmpty()) {
+                    continue;
+                }
+                Item item = new Item(newIds.getAsLong(), read.getText(), false);
+                item.setImportance(read.getImportance());
+                chunk.add(item);
+                if (chunk.size() == chunkSize) {
+                    chunks.accept(chunk);
+                    count += chunk.size();
+                    // The consumer keeps the chunk, e.g. queued for the writer thread.
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (!chunk.isEmpty()) {
+            chunks.accept(chunk);
+            count += chunk.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.shoppinglist;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// This class hands out unique ids for new items.
+//
+// An id is a sequence number with the replica id of the device in its low bits, like the stamps
+// of SyncRecord. Items created on different devices at the same instant therefore still get
+// different ids, and SyncClient can use the id alone to tell items of the household apart.
+//
+// The sequence number is based on the current time (in milliseconds), so ids keep increasing
+// across app restarts, but each new one is also at least one more than the previous one. That
+// way two items created in the same millisecond still get different ids (the sequence just runs
+// ahead of the clock for a while), and a clock that jumps backwards never causes an id to be
+// reused.
+//
+// After restoring a saved list, call advancePast() with the restored ids, so new ids are also
+// larger than every id that is already in use, whatever the clock says.
+//
+// The generator is thread-safe and lock-free.
+public class ItemIdGenerator {
+
+    private final long replicaId;
+    private final LongSupplier clock;
+
+    // The sequence number of the last id that was handed out (or reserved with advancePast()).
+    private final AtomicLong lastSequence = new AtomicLong();
+
+    // Creates a generator with a random replica id.
+    public ItemIdGenerator() {
+        this(SyncRecord.randomReplicaId());
+    }
+
+    // Creates a generator with the given replica id, which should be the one the device syncs
+    // with (see SyncClient). Only its low SyncRecord.REPLICA_BITS are used.
+    public ItemIdGenerator(long replicaId) {
+        this(replicaId, System::currentTimeMillis);
+    }
+
+    // Constructor taking the clock in milliseconds, so tests can control time.
+    ItemIdGenerator(long replicaId, LongSupplier clock) {
+        this.replicaId = replicaId & SyncRecord.REPLICA_MASK;
+        this.clock = clock;
+    }
+
+    public long getReplicaId() {
+        return replicaId;
+    }
+
+    // Returns a new id, larger than every id returned or reserved before.
+    public long nextId() {
+        long timeBased = clock.getAsLong();
+        long sequence = lastSequence.updateAndGet(last -> Math.max(last + 1, timeBased));
+        return sequence << SyncRecord.REPLICA_BITS | replicaId;
+    }
+
+    // Makes sure all following ids are larger than the given one.
+    public void advancePast(long id) {
+        lastSequence.accumulateAndGet(id >>> SyncRecord.REPLICA_BITS, Math::max);
+    }
+}
@@ -0,0 +1,586 @@
+package com.example.shoppinglist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+// This class stores the shopping list on disk as an append-only journal.
+//
+// Every change reported by ItemListModel (add, remove, text change, importance change) becomes a
+// small record that is appended to "items.journal". Records are collected in memory and written
+// in batches by a background thread, which also fsyncs the file, so the UI thread never waits
+// for the disk.
+//
+// To keep the journal from growing forever, it is compacted every COMPACT_THRESHOLD records:
+// the current list snapshot is written to "items.snapshot" and the journal starts over.
+// On startup, restore() loads the snapshot and replays the records written after it.
+//
+// Every record carries a sequence number, and the snapshot remembers the last sequence number it
+// contains. That way a crash between writing the snapshot and clearing the journal does not apply
+// the same change twice. Every record is also protected by a CRC32 checksum, so a record that was
+// only partly written when the app died is recognised and dropped, together with anything after it.
+//
+// Next to that, "items.first" keeps the first rows of the list (see readFirstScreen()), so the
+// app can show its first screen right away at startup, while restore() still reads the whole list.
+public class ItemJournal implements ItemListModel.ChangeListener, Closeable {
+
+    private static final Logger LOG = Logger.getLogger(ItemJournal.class.getName());
+
+    static final String SNAPSHOT_FILE = "items.snapshot";
+    static final String JOURNAL_FILE = "items.journal";
+    static final String FIRST_SCREEN_FILE = "items.first";
+
+    // Rows kept in the first screen file: more than fit on a large tablet.
+    static final int FIRST_SCREEN_SIZE = 40;
+
+    // Number of journal records after which the list is compacted into a new snapshot.
+    static final int COMPACT_THRESHOLD = 1000;
+
+    // How long records are collected before they are written and fsynced together.
+    static final long FLUSH_DELAY_MS = 200;
+
+    // How long to wait before trying again when writing failed (e.g. the disk was full).
+    static final long RETRY_DELAY_MS = 2000;
+
+    private static final int SNAPSHOT_MAGIC = 0x53484C31; // "SHL1"
+    private static final int FIRST_SCREEN_MAGIC = 0x53484646; // "SHFF"
+
+    // Largest record we accept when reading; anything bigger means the file is damaged.
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    // Record types.
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_TEXT = 3;
+    private static final byte OP_IMPORTANCE = 4;
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final File firstScreenFile;
+
+    // Gives access to the current list when it is time to write a new snapshot (or the first
+    // screen file, from the writer thread: snapshots of the list are immutable).
+    private final Supplier<List<Item>> snapshotSupplier;
+
+    // Single background thread doing all the disk writes.
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "ItemJournal"));
+
+    // Guards all the fields below, which are shared between the UI thread and the writer.
+    private final Object lock = new Object();
+
+    // Encoded records waiting to be written.
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    // Reused for encoding a single record before it is framed into 'pending'.
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+
+    private long nextSequence = 1;
+    private int recordsSinceCompaction;
+    private boolean flushScheduled;
+
+    // A snapshot waiting to be written, and the sequence number of the last record it contains.
+    private List<Item> pendingSnapshot;
+    private long pendingSnapshotSequence;
+
+    // Only used by the writer thread (and by restore(), before any writes happen).
+    private FileChannel journalChannel;
+
+    // The contents of the first screen file as last written, so it is only rewritten when the
+    // top of the list changed. Only used by the writer thread.
+    private byte[] writtenFirstScreen;
+
+    public ItemJournal(File directory, Supplier<List<Item>> snapshotSupplier) {
+        this.snapshotFile = new File(directory, SNAPSHOT_FILE);
+        this.journalFile = new File(directory, JOURNAL_FILE);
+        this.firstScreenFile = new File(directory, FIRST_SCREEN_FILE);
+        this.snapshotSupplier = snapshotSupplier;
+    }
+
+    // Reads the last snapshot and replays the journal written after it.
+    // Returns the restored items in display order. Must be called once, before recording changes.
+    public List<Item> restore() throws IOException {
+        Map<Long, Item> items = new LinkedHashMap<>();
+        long snapshotSequence = readSnapshot(items);
+        long lastSequence = snapshotSequence;
+
+        snapshotFile.getParentFile().mkdirs();
+        journalChannel = new RandomAccessFile(journalFile, "rw").getChannel();
+
+        // Replay all complete records, remembering where the last good one ends.
+        long validLength = 0;
+        int replayed = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            byte[] record;
+            while ((record = readRecord(in)) != null) {
+                long sequence = applyRecord(record, items, snapshotSequence);
+                lastSequence = Math.max(lastSequence, sequence);
+                validLength += 8 + record.length;
+                replayed++;
+            }
+        }
+        // Cut off a damaged tail, so new records are appended right after the last good one.
+        if (journalChannel.size() > validLength) {
+            journalChannel.truncate(validLength);
+        }
+        journalChannel.position(validLength);
+
+        synchronized (lock) {
+            nextSequence = lastSequence + 1;
+            recordsSinceCompaction = replayed;
+        }
+        return new ArrayList<>(items.values());
+    }
+
+    // Reads the first rows of the list as saved by the last write, in display order, without
+    // touching the snapshot or the journal, so it takes the same time for any list size.
+    // The rows are a preview only: they may lag behind the journal by the last batch of changes,
+    // and restore() has the final word. Returns an empty list if there is no usable file.
+    public List<Item> readFirstScreen() {
+        if (!firstScreenFile.exists()) {
+            return new ArrayList<>();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(firstScreenFile)))) {
+            if (in.readInt() != FIRST_SCREEN_MAGIC) {
+                return new ArrayList<>();
+            }
+            int expectedCrc = in.readInt();
+            byte[] bytes = readFully(in, (int) firstScreenFile.length() - 8);
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length);
+            if ((int) crc.getValue() != expectedCrc) {
+                return new ArrayList<>();
+            }
+            DataInputStream body = new DataInputStream(new ByteArrayInputStream(bytes));
+            int count = body.readInt();
+            List<Item> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(readItem(body));
+            }
+            return items;
+        } catch (IOException e) {
+            // The preview is optional, startup simply waits for restore() instead.
+            LOG.log(Level.FINE, "Could not read " + firstScreenFile, e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public void onItemAdded(Item item) {
+        synchronized (lock) {
+            DataOutputStream out = beginRecord(OP_ADD, item.getId());
+            try {
+                writeString(out, item.getText());
+                out.writeByte(item.getImportance().ordinal());
+                out.writeBoolean(item.isNewEntry());
+            } catch (IOException e) {
+                throw new AssertionError(e); // Writing to memory does not fail.
+            }
+            endRecord();
+        }
+    }
+
+    @Override
+    public void onItemRemoved(long id) {
+        synchronized (lock) {
+            beginRecord(OP_REMOVE, id);
+            endRecord();
+        }
+    }
+
+    @Override
+    public void onItemTextChanged(long id, String text) {
+        synchronized (lock) {
+            DataOutputStream out = beginRecord(OP_TEXT, id);
+            try {
+                writeString(out, text);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            endRecord();
+        }
+    }
+
+    @Override
+    public void onItemImportanceChanged(long id, Item.ImportanceLevel importance) {
+        synchronized (lock) {
+            DataOutputStream out = beginRecord(OP_IMPORTANCE, id);
+            try {
+                out.writeByte(importance.ordinal());
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            endRecord();
+        }
+    }
+
+    // Writes everything collected so far without waiting for the batching delay,
+    // e.g. when the app goes to the background.
+    public void flushNow() {
+        writer.execute(this::flush);
+    }
+
+    // Writes everything collected so far and stops the background thread, without waiting for
+    // it: the journal file is closed by the writer thread itself, after its last write. Remove
+    // the journal as a change listener first, changes recorded afterwards are not written.
+    @Override
+    public void close() {
+        writer.execute(() -> {
+            flush();
+            closeChannel();
+        });
+        writer.shutdown();
+    }
+
+    // Waits until close() has written everything and closed the journal file.
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return writer.awaitTermination(timeout, unit);
+    }
+
+    // Runs on the writer thread, as its last task.
+    private void closeChannel() {
+        if (journalChannel == null) {
+            return;
+        }
+        try {
+            journalChannel.close();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not close the shopping list journal", e);
+        }
+        journalChannel = null;
+    }
+
+    // Starts encoding a record. Must be called while holding the lock.
+    private DataOutputStream beginRecord(byte op, long id) {
+        recordBuffer.reset();
+        try {
+            recordOut.writeLong(nextSequence++);
+            recordOut.writeByte(op);
+            recordOut.writeLong(id);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return recordOut;
+    }
+
+    // Frames the encoded record as [length][crc][record], queues it and schedules a write.
+    // When enough records have piled up, the current list is queued as a new snapshot instead.
+    // Must be called while holding the lock.
+    private void endRecord() {
+        if (++recordsSinceCompaction >= COMPACT_THRESHOLD) {
+            // The snapshot already contains this change and every change before it,
+            // so the records still waiting in memory are not needed any more.
+            pending.reset();
+            pendingSnapshot = snapshotSupplier.get();
+            pendingSnapshotSequence = nextSequence - 1;
+            recordsSinceCompaction = 0;
+        } else {
+            byte[] record = recordBuffer.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(record, 0, record.length);
+            writeInt(pending, record.length);
+            writeInt(pending, (int) crc.getValue());
+            pending.write(record, 0, record.length);
+        }
+        if (!flushScheduled) {
+            flushScheduled = true;
+            writer.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Runs on the writer thread: writes the queued snapshot (if any) and the queued records.
+    private void flush() {
+        byte[] records;
+        List<Item> snapshot;
+        long snapshotSequence;
+        synchronized (lock) {
+            flushScheduled = false;
+            records = pending.toByteArray();
+            pending.reset();
+            snapshot = pendingSnapshot;
+            snapshotSequence = pendingSnapshotSequence;
+            pendingSnapshot = null;
+        }
+        if (snapshot == null && records.length == 0) {
+            return;
+        }
+
+        long journalLength = -1;
+        try {
+            if (snapshot != null) {
+                writeSnapshot(snapshot, snapshotSequence);
+                // Everything in the journal is part of the snapshot now.
+                journalChannel.truncate(0);
+                snapshot = null;
+            }
+            journalLength = journalChannel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(records);
+            journalChannel.position(journalLength);
+            while (buffer.hasRemaining()) {
+                journalChannel.write(buffer);
+            }
+            journalChannel.force(false);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not write the shopping list journal, retrying", e);
+            retryLater(snapshot, snapshotSequence, records, journalLength);
+            return;
+        }
+        writeFirstScreen();
+    }
+
+    // Saves the top of the current list for readFirstScreen(), if it changed. Not synced to the
+    // disk: after a crash the file may be old or damaged, which only costs the preview.
+    private void writeFirstScreen() {
+        List<Item> items = snapshotSupplier.get();
+        List<Item> top = items.subList(0, Math.min(FIRST_SCREEN_SIZE, items.size()));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        try {
+            bodyOut.writeInt(top.size());
+            for (Item item : top) {
+                writeItem(bodyOut, item);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        byte[] bytes = body.toByteArray();
+        if (Arrays.equals(bytes, writtenFirstScreen)) {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        File temp = new File(firstScreenFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(FIRST_SCREEN_MAGIC);
+                out.writeInt((int) crc.getValue());
+                out.write(bytes);
+            }
+            if (!temp.renameTo(firstScreenFile)) {
+                throw new IOException("Could not replace " + firstScreenFile);
+            }
+            writtenFirstScreen = bytes;
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Could not write " + firstScreenFile, e);
+        }
+    }
+
+    // Puts data that could not be written back in front of the queue and schedules another try.
+    private void retryLater(List<Item> snapshot, long snapshotSequence, byte[] records, long journalLength) {
+        if (journalLength >= 0) {
+            // Drop a partly written batch, it will be written again in full.
+            try {
+                journalChannel.truncate(journalLength);
+            } catch (IOException ignored) {
+                // The checksums will catch the damaged tail when the journal is read.
+            }
+        }
+        synchronized (lock) {
+            if (pendingSnapshot == null) {
+                if (snapshot != null) {
+                    pendingSnapshot = snapshot;
+                    pendingSnapshotSequence = snapshotSequence;
+                }
+                byte[] newer = pending.toByteArray();
+                pending.reset();
+                pending.write(records, 0, records.length);
+                pending.write(newer, 0, newer.length);
+            }
+            // Otherwise a newer snapshot already contains everything we failed to write.
+            // Once closed there is no later try, and the restored list misses these changes.
+            if (!flushScheduled && !writer.isShutdown()) {
+                flushScheduled = true;
+                writer.schedule(this::flush, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Writes the snapshot to a temporary file first and then renames it, so a crash never
+    // leaves a half written snapshot behind.
+    private void writeSnapshot(List<Item> items, long lastSequence) throws IOException {
+        File temp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream bodyOut = new DataOutputStream(body);
+            bodyOut.writeLong(lastSequence);
+            bodyOut.writeInt(items.size());
+            for (Item item : items) {
+                writeItem(bodyOut, item);
+            }
+            byte[] bytes = body.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length);
+
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt((int) crc.getValue());
+            out.write(bytes);
+            out.flush();
+            file.getFD().sync();
+        }
+        if (!temp.renameTo(snapshotFile)) {
+            throw new IOException("Could not replace " + snapshotFile);
+        }
+    }
+
+    // Loads the snapshot into 'items' and returns the sequence number of its last record,
+    // or 0 if there is no snapshot yet.
+    private long readSnapshot(Map<Long, Item> items) throws IOException {
+        if (!snapshotFile.exists()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a shopping list snapshot: " + snapshotFile);
+            }
+            int expectedCrc = in.readInt();
+            byte[] bytes = readFully(in, (int) snapshotFile.length() - 8);
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length);
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("Damaged shopping list snapshot: " + snapshotFile);
+            }
+
+            DataInputStream body = new DataInputStream(new ByteArrayInputStream(bytes));
+            long lastSequence = body.readLong();
+            int count = body.readInt();
+            for (int i = 0; i < count; i++) {
+                Item item = readItem(body);
+                items.put(item.getId(), item);
+            }
+            return lastSequence;
+        }
+    }
+
+    // Reads the next complete and undamaged record, or returns null at the end of the journal.
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int expectedCrc = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                return null;
+            }
+            byte[] record = readFully(in, length);
+            CRC32 crc = new CRC32();
+            crc.update(record, 0, length);
+            return (int) crc.getValue() == expectedCrc ? record : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    // Applies one journal record to the restored items, unless the snapshot already contains it.
+    // Returns the sequence number of the record.
+    private static long applyRecord(byte[] record, Map<Long, Item> items, long snapshotSequence) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        long sequence = in.readLong();
+        if (sequence <= snapshotSequence) {
+            return sequence;
+        }
+        byte op = in.readByte();
+        long id = in.readLong();
+        switch (op) {
+            case OP_ADD: {
+                Item item = new Item(id, readString(in), false);
+                item.setImportance(Item.ImportanceLevel.values()[in.readByte()]);
+                item.setNewEntry(in.readBoolean());
+                items.remove(id);
+                items.put(id, item);
+                break;
+            }
+            case OP_REMOVE:
+                items.remove(id);
+                break;
+            case OP_TEXT: {
+                Item item = items.get(id);
+                if (item != null) {
+                    item.setText(readString(in));
+                }
+                break;
+            }
+            case OP_IMPORTANCE: {
+                Item item = items.get(id);
+                if (item != null) {
+                    Item.ImportanceLevel importance = Item.ImportanceLevel.values()[in.readByte()];
+                    if (item.isNewEntry() || item.getImportance() != importance) {
+                        // Like in ItemListModel, the item moves to the end of its importance group.
+                        items.remove(id);
+                        items.put(id, item);
+                    }
+                    item.setImportance(importance);
+                    item.setNewEntry(false);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type " + op);
+        }
+        return sequence;
+    }
+
+    private static void writeItem(DataOutputStream out, Item item) throws IOException {
+        out.writeLong(item.getId());
+        writeString(out, item.getText());
+        out.writeByte(item.getImportance().ordinal());
+        out.writeBoolean(item.isNewEntry());
+    }
+
+    private static Item readItem(DataInputStream in) throws IOException {
+        Item item = new Item(in.readLong(), readString(in), false);
+        item.setImportance(Item.ImportanceLevel.values()[in.readByte()]);
+        item.setNewEntry(in.readBoolean());
+        return item;
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readFully(in, in.readInt()), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readFully(DataInputStream in, int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Negative length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
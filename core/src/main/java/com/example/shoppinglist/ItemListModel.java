@@ -0,0 +1,443 @@
+package com.example.shoppinglist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// This class holds the shopping items in display order and keeps that order up to date
+// incrementally, so nothing ever needs to re-sort the whole list.
+//
+// The list is laid out as consecutive "buckets", one per Item.ImportanceLevel (in enum order),
+// followed by a tail of new entries (the blank row the user is typing into):
+//
+//   [ IMPORTANT ... ][ NORMAL ... ][ UNIMPORTANT ... ][ new entries ... ]
+//
+// Because we only keep a counter per bucket, the position where an item belongs can be
+// computed in O(1) and an importance change becomes a single move instead of a full sort.
+// Inside a bucket the order is stable: items keep the order in which they entered it.
+//
+// After every change the model publishes an immutable snapshot of the list. Items inside a
+// published snapshot are never modified again: a changed item is replaced by a changed copy.
+// That way the adapter can compare two snapshots (on a background thread) and find out
+// exactly which rows were inserted, removed, moved or changed.
+//
+// The list itself is a PersistentItemList, so a change creates a new version of it in
+// O(log n) that shares everything else with the previous one, and taking a snapshot is free.
+// Snapshots are published through an AtomicReference: getSnapshot() can be called from any
+// thread without locking and always returns a complete, consistent version of the list.
+// All other methods must be called from one thread at a time, see ItemListStore.
+//
+// To find an item by id without scanning the list, every item gets an order key when it is
+// put in its place: its bucket (or the tail) in the high bits and a sequence number that only
+// grows in the low ones. Sorting by that key gives exactly the display order, so the position
+// of an id is found by looking up its key and then descending the tree, in O(log n).
+public class ItemListModel {
+
+    // Callback used to hand every new snapshot of the list to the UI.
+    public interface Listener {
+        void onSnapshot(List<Item> snapshot);
+    }
+
+    // Callback describing each individual change, e.g. for writing it to storage or updating
+    // a search index. It is called once the snapshot containing the change has been taken, but
+    // before that snapshot is handed to the Listener, so everything listening for changes is
+    // already up to date when the UI gets the new list.
+    public interface ChangeListener {
+        void onItemAdded(Item item);
+        void onItemRemoved(long id);
+        void onItemTextChanged(long id, String text);
+        void onItemImportanceChanged(long id, Item.ImportanceLevel importance);
+    }
+
+    // addAll() inserts the items one by one while there are fewer than 1/16 of the list: an
+    // insertion copies about log2(n) tree nodes, a rebuild creates all n of them.
+    private static final int INSERT_ONE_BY_ONE_RATIO = 16;
+
+    // Bits of an order key below its section.
+    private static final int SECTION_SHIFT = 48;
+
+    // All items in display order (see the layout described above).
+    private PersistentItemList items = PersistentItemList.empty();
+
+    // Number of items in each importance bucket, indexed by ImportanceLevel.ordinal().
+    private final int[] bucketSizes = new int[Item.ImportanceLevel.values().length];
+
+    // Order key of every item by id (see above), and the sequence number for the next one.
+    private final LongLongHashMap orderKeys = new LongLongHashMap();
+    private long nextSequence;
+
+    // The last published version of the list.
+    private final AtomicReference<PersistentItemList> snapshot =
+            new AtomicReference<>(PersistentItemList.empty());
+
+    private Listener listener;
+    private final List<ChangeListener> changeListeners = new ArrayList<>();
+
+    // Nesting depth of batch() calls, and what the running batch has changed so far.
+    private int batchDepth;
+    private boolean batchChanged;
+    private final List<Consumer<ChangeListener>> batchNotifications = new ArrayList<>();
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void addChangeListener(ChangeListener changeListener) {
+        changeListeners.add(changeListener);
+    }
+
+    public void removeChangeListener(ChangeListener changeListener) {
+        changeListeners.remove(changeListener);
+    }
+
+    // Replaces the whole list, e.g. with items restored from storage, and publishes it once.
+    // Placed items are grouped by importance keeping their relative order, new entries go last.
+    // This is not reported to the ChangeListener, since nothing was changed by the user.
+    public void setItems(List<Item> newItems) {
+        List<Item> ordered = new ArrayList<>(newItems.size());
+        Arrays.fill(bucketSizes, 0);
+        for (Item.ImportanceLevel importance : Item.ImportanceLevel.values()) {
+            for (Item item : newItems) {
+                if (!item.isNewEntry() && item.getImportance() == importance) {
+                    ordered.add(item);
+                    bucketSizes[importance.ordinal()]++;
+                }
+            }
+        }
+        for (Item item : newItems) {
+            if (item.isNewEntry()) {
+                ordered.add(item);
+            }
+        }
+        items = PersistentItemList.copyOf(ordered);
+        orderKeys.clear();
+        for (Item item : ordered) {
+            assignOrderKey(item);
+        }
+        changed(null);
+    }
+
+    // Runs 'changes' (any calls to the methods of this model) as one transaction: the list is
+    // published once at the end, as a single snapshot, instead of once per change. So the UI
+    // diffs and lays out the list once, e.g. for a pasted list of 200 items.
+    //
+    // The ChangeListeners still hear about every single change, all of them right before that
+    // snapshot is handed to the Listener. getSnapshot() returns the list as it was before the
+    // batch until the batch is done. Batches can be nested, only the outermost one publishes.
+    public void batch(Runnable changes) {
+        batchDepth++;
+        try {
+            changes.run();
+        } finally {
+            if (--batchDepth == 0 && batchChanged) {
+                batchChanged = false;
+                List<Consumer<ChangeListener>> notifications = new ArrayList<>(batchNotifications);
+                batchNotifications.clear();
+                takeSnapshot();
+                for (Consumer<ChangeListener> notification : notifications) {
+                    for (ChangeListener changeListener : changeListeners) {
+                        notification.accept(changeListener);
+                    }
+                }
+                publish();
+            }
+        }
+    }
+
+    // Returns the current immutable snapshot of the items in display order.
+    // Safe to call from any thread.
+    public List<Item> getSnapshot() {
+        return snapshot.get();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public Item get(int position) {
+        return items.get(position);
+    }
+
+    // Adds an item to the list. New entries go to the very end (after all sorted items),
+    // already placed items go to the end of their importance bucket.
+    public void add(Item item) {
+        insert(item);
+        changed(changeListener -> changeListener.onItemAdded(item));
+    }
+
+    // Removes the item with the given id.
+    public void remove(long id) {
+        int position = indexOf(id);
+        if (position < 0) {
+            return;
+        }
+        Item removed = items.get(position);
+        items = items.withRemoved(position);
+        orderKeys.remove(id);
+        if (position < sortedSize()) {
+            // The removed item lived in a bucket, so that bucket shrinks by one.
+            bucketSizes[removed.getImportance().ordinal()]--;
+        }
+        changed(changeListener -> changeListener.onItemRemoved(id));
+    }
+
+    // Sets the importance of the item with the given id and moves it to the end of the
+    // matching bucket. A new entry is "placed" into the sorted part of the list by this call.
+    public void setImportance(long id, Item.ImportanceLevel importance) {
+        int position = indexOf(id);
+        if (position < 0) {
+            return;
+        }
+        Item item = items.get(position);
+        boolean inBucket = position < sortedSize();
+
+        Item updated = new Item(item);
+        updated.setImportance(importance);
+        updated.setNewEntry(false);
+        updated.setOptionsExpanded(false);
+
+        if (inBucket && item.getImportance() == importance) {
+            // Nothing moves, only the row needs to be redrawn.
+            items = items.withReplaced(position, updated);
+            changed(changeListener -> changeListener.onItemImportanceChanged(id, importance));
+            return;
+        }
+
+        // Take the item out of its current place first, so bucketEnd() sees the final counts.
+        items = items.withRemoved(position);
+        if (inBucket) {
+            bucketSizes[item.getImportance().ordinal()]--;
+        }
+
+        assignOrderKey(updated);
+        items = items.withInserted(bucketEnd(importance), updated);
+        bucketSizes[importance.ordinal()]++;
+        changed(changeListener -> changeListener.onItemImportanceChanged(id, importance));
+    }
+
+    // Changes the text of the item with the given id. Like the row itself does while the user
+    // types, a non-empty text shows the importance buttons and an empty one hides them.
+    public void setText(long id, String text) {
+        int position = indexOf(id);
+        if (position < 0 || items.get(position).getText().equals(text)) {
+            return;
+        }
+        Item updated = new Item(items.get(position));
+        updated.setText(text);
+        updated.setOptionsExpanded(!text.isEmpty());
+        items = items.withReplaced(position, updated);
+        changed(changeListener -> changeListener.onItemTextChanged(id, text));
+    }
+
+    // Shows or hides the importance buttons of the item with the given id.
+    public void setOptionsExpanded(long id, boolean expanded) {
+        int position = indexOf(id);
+        if (position < 0 || items.get(position).isOptionsExpanded() == expanded) {
+            return;
+        }
+        Item updated = new Item(items.get(position));
+        updated.setOptionsExpanded(expanded);
+        items = items.withReplaced(position, updated);
+        changed(null);
+    }
+
+    // Adds many items as one transaction (see batch()). Like add(), new entries go to the very
+    // end and placed items to the end of their importance bucket, keeping the given order.
+    // Few items (compared to the list, e.g. a chunk of an import) are inserted one by one in
+    // O(log n) each, many are merged in by rebuilding the list in one O(n) pass.
+    public void addAll(List<Item> newItems) {
+        if (newItems.isEmpty()) {
+            return;
+        }
+        if (newItems.size() < items.size() / INSERT_ONE_BY_ONE_RATIO) {
+            for (Item item : newItems) {
+                insert(item);
+            }
+        } else {
+            rebuildWith(newItems);
+        }
+        batch(() -> {
+            for (Item item : newItems) {
+                changed(changeListener -> changeListener.onItemAdded(item));
+            }
+        });
+    }
+
+    // Merges the new items into the list in one pass, building a new tree.
+    private void rebuildWith(List<Item> newItems) {
+        List<Item> current = new ArrayList<>(items);
+        List<Item> merged = new ArrayList<>(items.size() + newItems.size());
+        int start = 0;
+        for (Item.ImportanceLevel importance : Item.ImportanceLevel.values()) {
+            int end = start + bucketSizes[importance.ordinal()];
+            merged.addAll(current.subList(start, end));
+            for (Item item : newItems) {
+                if (!item.isNewEntry() && item.getImportance() == importance) {
+                    merged.add(item);
+                    bucketSizes[importance.ordinal()]++;
+                }
+            }
+            start = end;
+        }
+        merged.addAll(current.subList(start, current.size()));
+        for (Item item : newItems) {
+            if (item.isNewEntry()) {
+                merged.add(item);
+            }
+        }
+        items = PersistentItemList.copyOf(merged);
+        // Keys only grow, so the new items sort after the ones already in their bucket.
+        for (Item item : newItems) {
+            assignOrderKey(item);
+        }
+    }
+
+    // Removes all placed items of the given importance as one transaction (see batch()),
+    // e.g. to clear the UNIMPORTANT ones. They form one bucket, so this is one range removal.
+    public void removeAll(Item.ImportanceLevel importance) {
+        int end = bucketEnd(importance);
+        int start = end - bucketSizes[importance.ordinal()];
+        if (start == end) {
+            return;
+        }
+        List<Item> remaining = new ArrayList<>(items);
+        List<Item> bucket = remaining.subList(start, end);
+        long[] removedIds = new long[bucket.size()];
+        for (int i = 0; i < removedIds.length; i++) {
+            removedIds[i] = bucket.get(i).getId();
+            orderKeys.remove(removedIds[i]);
+        }
+        bucket.clear();
+        bucketSizes[importance.ordinal()] = 0;
+        items = PersistentItemList.copyOf(remaining);
+        batch(() -> {
+            for (long id : removedIds) {
+                changed(changeListener -> changeListener.onItemRemoved(id));
+            }
+        });
+    }
+
+    // Sets the importance of all items with the given ids as one transaction (see batch()).
+    // Like setImportance(long, ...), items already placed with that importance stay where they
+    // are, the others move to the end of its bucket, keeping their order.
+    public void setImportance(LongHashSet ids, Item.ImportanceLevel importance) {
+        int sortedSize = sortedSize();
+        List<Item> kept = new ArrayList<>(items.size());
+        List<Item> moved = new ArrayList<>();
+        List<Long> changedIds = new ArrayList<>();
+        int position = -1;
+        for (Item item : items) {
+            position++;
+            if (!ids.contains(item.getId())) {
+                kept.add(item);
+                continue;
+            }
+            boolean inBucket = position < sortedSize;
+            Item updated = new Item(item);
+            updated.setImportance(importance);
+            updated.setNewEntry(false);
+            updated.setOptionsExpanded(false);
+            changedIds.add(item.getId());
+            if (inBucket && item.getImportance() == importance) {
+                kept.add(updated);
+            } else {
+                if (inBucket) {
+                    bucketSizes[item.getImportance().ordinal()]--;
+                }
+                assignOrderKey(updated);
+                moved.add(updated);
+            }
+        }
+        if (changedIds.isEmpty()) {
+            return;
+        }
+        // The kept items are laid out like before, with the bucket sizes already updated.
+        kept.addAll(bucketEnd(importance), moved);
+        bucketSizes[importance.ordinal()] += moved.size();
+        items = PersistentItemList.copyOf(kept);
+        batch(() -> {
+            for (long id : changedIds) {
+                changed(changeListener -> changeListener.onItemImportanceChanged(id, importance));
+            }
+        });
+    }
+
+    // Position of the item with the given id, or -1 if there is no such item. O(log n).
+    public int indexOf(long id) {
+        long key = orderKeys.get(id, -1);
+        return key < 0 ? -1 : items.indexOfKey(this::orderKey, key);
+    }
+
+    private long orderKey(Item item) {
+        return orderKeys.get(item.getId(), -1);
+    }
+
+    // Gives the item a key sorting after all items in its bucket (or in the tail of new entries).
+    private void assignOrderKey(Item item) {
+        long section = item.isNewEntry() ? Item.ImportanceLevel.values().length : item.getImportance().ordinal();
+        orderKeys.put(item.getId(), section << SECTION_SHIFT | nextSequence++);
+    }
+
+    // Puts an item where add() says, without telling anyone.
+    private void insert(Item item) {
+        int position;
+        if (item.isNewEntry()) {
+            position = items.size();
+        } else {
+            position = bucketEnd(item.getImportance());
+            bucketSizes[item.getImportance().ordinal()]++;
+        }
+        assignOrderKey(item);
+        items = items.withInserted(position, item);
+    }
+
+    // Number of items that already have their place in one of the importance buckets.
+    private int sortedSize() {
+        int size = 0;
+        for (int bucketSize : bucketSizes) {
+            size += bucketSize;
+        }
+        return size;
+    }
+
+    // Position right after the last item of the given importance bucket.
+    private int bucketEnd(Item.ImportanceLevel importance) {
+        int end = 0;
+        for (int i = 0; i <= importance.ordinal(); i++) {
+            end += bucketSizes[i];
+        }
+        return end;
+    }
+
+    // Publishes a change, with 'notification' telling the ChangeListeners about it (or null if
+    // they do not care). Inside batch() this only remembers the change until the batch is done.
+    private void changed(Consumer<ChangeListener> notification) {
+        if (batchDepth > 0) {
+            batchChanged = true;
+            if (notification != null) {
+                batchNotifications.add(notification);
+            }
+            return;
+        }
+        takeSnapshot();
+        if (notification != null) {
+            for (ChangeListener changeListener : changeListeners) {
+                notification.accept(changeListener);
+            }
+        }
+        publish();
+    }
+
+    // Publishes the current version of the list as the snapshot. Nothing is copied: the list
+    // is immutable, later changes create new versions of it.
+    private void takeSnapshot() {
+        snapshot.set(items);
+    }
+
+    // Hands the current snapshot to the listener.
+    private void publish() {
+        if (listener != null) listener.onSnapshot(snapshot.get());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.shoppinglist;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// This class lets any thread change the shopping list, while all changes are actually made by
+// one background thread, one after the other (a "single writer").
+//
+// Changes are handed over with execute() and applied to the ItemListModel in the order they
+// were handed over. The model's Listener and ChangeListeners are called on that thread too, so
+// they never run concurrently with a change. Readers never wait for the writer: getSnapshot()
+// returns the last published version of the list right away, from any thread. That version is
+// immutable, so it can be iterated at leisure (e.g. for an export) while the user keeps editing.
+//
+// Every change is timed into the PerfStats: how long it waited in the queue ("list.wait_ns")
+// and how long it took, including everything listening to the model ("list.change_ns").
+public class ItemListStore implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(ItemListStore.class.getName());
+
+    private final ItemListModel model = new ItemListModel();
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "ItemListStore"));
+
+    private final Histogram waitTimes;
+    private final Histogram changeTimes;
+
+    public ItemListStore() {
+        this(new PerfStats());
+    }
+
+    public ItemListStore(PerfStats stats) {
+        waitTimes = stats.histogram("list.wait_ns");
+        changeTimes = stats.histogram("list.change_ns");
+    }
+
+    // Queues a change. It runs on the writer thread, after all changes queued before it.
+    public void execute(Consumer<ItemListModel> change) {
+        long queued = System.nanoTime();
+        writer.execute(() -> {
+            long started = System.nanoTime();
+            waitTimes.record(started - queued);
+            try {
+                change.accept(model);
+            } catch (RuntimeException e) {
+                // One broken change must not stop the ones queued after it.
+                LOG.log(Level.SEVERE, "A change of the shopping list failed", e);
+            } finally {
+                changeTimes.record(System.nanoTime() - started);
+            }
+        });
+    }
+
+    // Queues a function reading (or changing) the model and returns its future result.
+    public <T> Future<T> submit(Function<ItemListModel, T> function) {
+        long queued = System.nanoTime();
+        return writer.submit(() -> {
+            long started = System.nanoTime();
+            waitTimes.record(started - queued);
+            try {
+                return function.apply(model);
+            } finally {
+                changeTimes.record(System.nanoTime() - started);
+            }
+        });
+    }
+
+    // Returns the last published snapshot of the list. Never blocks.
+    public List<Item> getSnapshot() {
+        return model.getSnapshot();
+    }
+
+    // Waits until every change queued so far has been applied. Not a change itself, so it is
+    // left out of the timings.
+    public void awaitPending() throws InterruptedException {
+        try {
+            writer.submit(() -> null).get();
+        } catch (ExecutionException e) {
+            throw new AssertionError(e); // The empty function does not fail.
+        }
+    }
+
+    // Stops the writer thread once the changes queued so far are applied, without waiting for
+    // them. Use awaitPending() first where they must be done.
+    @Override
+    public void close() {
+        writer.shutdown();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.shoppinglist;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+// A list that is read a page at a time instead of all at once, e.g. from a file. See
+// PagedItemList for the window of pages kept in memory.
+public interface ItemPageSource extends Closeable {
+
+    // Number of items in the whole list.
+    int size();
+
+    // Number of items per page; the last page may have fewer.
+    int pageSize();
+
+    // Reads the items of one page. May be called from several threads at the same time.
+    List<Item> loadPage(int page) throws IOException;
+}
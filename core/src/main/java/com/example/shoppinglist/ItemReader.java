@@ -0,0 +1,13 @@
+package com.example.shoppinglist;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Reads items one by one from an exported list (see BinaryItemReader and TextItemReader),
+// so a large list never has to be in memory as a whole.
+public interface ItemReader extends Closeable {
+
+    // Returns the next item, or null when the input has ended.
+    // Damaged or incomplete input is reported with an IOException.
+    Item read() throws IOException;
+}
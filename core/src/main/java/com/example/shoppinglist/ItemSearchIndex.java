@@ -0,0 +1,211 @@
+package com.example.shoppinglist;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// This class is an in-memory n-gram index over the item texts, used to filter the list as the
+// user types, without scanning every item on each keystroke.
+//
+// Texts are normalized first: lower case, with accents removed ("Crème" becomes "creme"), so
+// searching is case- and accent-insensitive. Then every substring of length 1, 2 and 3 (the
+// "n-grams") is recorded together with the ids of the items containing it.
+//
+// - A query of up to 3 characters is itself an n-gram, so its id set is the exact answer.
+// - For a longer query, every item containing it must also contain all of its trigrams. The
+//   trigram sets are intersected, smallest first, so the candidates shrink with every set and
+//   the work is bounded by the rarest trigram, not by the list. Only the items left are then
+//   checked for the query as a whole.
+//
+// The index is kept up to date incrementally through ItemListModel.ChangeListener: a text change
+// only touches the n-grams that were added or removed.
+public class ItemSearchIndex implements ItemListModel.ChangeListener {
+
+    // Longest n-gram stored in the index.
+    static final int MAX_GRAM = 3;
+
+    private static final LongHashSet NO_MATCHES = new LongHashSet();
+
+    // Ids of the items containing each n-gram (see gramKey()).
+    private final LongObjectHashMap<LongHashSet> postings = new LongObjectHashMap<>();
+
+    // Normalized text of every indexed item.
+    private final LongObjectHashMap<String> texts = new LongObjectHashMap<>();
+
+    // Reused while updating the index after a text change.
+    private final LongHashSet oldGrams = new LongHashSet();
+    private final LongHashSet newGrams = new LongHashSet();
+
+    // Rebuilds the index from scratch, e.g. after the list has been restored.
+    public void rebuild(List<Item> items) {
+        postings.clear();
+        texts.clear();
+        for (Item item : items) {
+            index(item.getId(), normalize(item.getText()));
+        }
+    }
+
+    // Returns the ids of all items whose text contains the query (ignoring case and accents).
+    // An empty query matches every item. The returned set belongs to the index: it must not be
+    // modified and is only valid until the next change.
+    public LongHashSet search(String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            LongHashSet all = new LongHashSet(texts.size());
+            texts.forEachKey(all::add);
+            return all;
+        }
+        if (normalized.length() <= MAX_GRAM) {
+            LongHashSet ids = postings.get(gramKey(normalized, 0, normalized.length()));
+            return ids == null ? NO_MATCHES : ids;
+        }
+
+        // The sets of all trigrams of the query, smallest first.
+        int grams = normalized.length() - MAX_GRAM + 1;
+        LongHashSet[] sets = new LongHashSet[grams];
+        for (int i = 0; i < grams; i++) {
+            sets[i] = postings.get(gramKey(normalized, i, MAX_GRAM));
+            if (sets[i] == null) {
+                return NO_MATCHES;
+            }
+        }
+        Arrays.sort(sets, (a, b) -> Integer.compare(a.size(), b.size()));
+
+        // The items of the rarest trigram, narrowed down by each of the others.
+        long[] candidates = new long[sets[0].size()];
+        int[] count = new int[1];
+        sets[0].forEach(id -> candidates[count[0]++] = id);
+        int left = count[0];
+        for (int s = 1; s < sets.length && left > 0; s++) {
+            if (sets[s] == sets[s - 1]) {
+                continue; // A trigram that occurs twice in the query.
+            }
+            int kept = 0;
+            for (int i = 0; i < left; i++) {
+                if (sets[s].contains(candidates[i])) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            left = kept;
+        }
+
+        LongHashSet matches = new LongHashSet(left);
+        for (int i = 0; i < left; i++) {
+            if (texts.get(candidates[i]).contains(normalized)) {
+                matches.add(candidates[i]);
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public void onItemAdded(Item item) {
+        unindex(item.getId());
+        index(item.getId(), normalize(item.getText()));
+    }
+
+    @Override
+    public void onItemRemoved(long id) {
+        unindex(id);
+    }
+
+    @Override
+    public void onItemTextChanged(long id, String text) {
+        String oldText = texts.get(id);
+        String newText = normalize(text);
+        if (oldText == null) {
+            index(id, newText);
+            return;
+        }
+        // Only update the n-grams that actually appeared or disappeared.
+        collectGrams(oldText, oldGrams);
+        collectGrams(newText, newGrams);
+        oldGrams.forEach(gram -> {
+            if (!newGrams.contains(gram)) {
+                removePosting(gram, id);
+            }
+        });
+        newGrams.forEach(gram -> {
+            if (!oldGrams.contains(gram)) {
+                addPosting(gram, id);
+            }
+        });
+        texts.put(id, newText);
+    }
+
+    @Override
+    public void onItemImportanceChanged(long id, Item.ImportanceLevel importance) {
+        // The importance is not searchable.
+    }
+
+    // Lower-cases the text and removes accents, so "Crème Brûlée" and "creme brulee" match.
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder result = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private void index(long id, String normalized) {
+        texts.put(id, normalized);
+        for (int start = 0; start < normalized.length(); start++) {
+            for (int length = 1; length <= MAX_GRAM && start + length <= normalized.length(); length++) {
+                addPosting(gramKey(normalized, start, length), id);
+            }
+        }
+    }
+
+    private void unindex(long id) {
+        String oldText = texts.remove(id);
+        if (oldText == null) {
+            return;
+        }
+        for (int start = 0; start < oldText.length(); start++) {
+            for (int length = 1; length <= MAX_GRAM && start + length <= oldText.length(); length++) {
+                removePosting(gramKey(oldText, start, length), id);
+            }
+        }
+    }
+
+    private void addPosting(long gram, long id) {
+        LongHashSet ids = postings.get(gram);
+        if (ids == null) {
+            ids = new LongHashSet();
+            postings.put(gram, ids);
+        }
+        ids.add(id);
+    }
+
+    private void removePosting(long gram, long id) {
+        LongHashSet ids = postings.get(gram);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            postings.remove(gram);
+        }
+    }
+
+    // Collects all distinct n-grams (of length 1 to MAX_GRAM) of a normalized text.
+    private static void collectGrams(String text, LongHashSet grams) {
+        grams.clear();
+        for (int start = 0; start < text.length(); start++) {
+            for (int length = 1; length <= MAX_GRAM && start + length <= text.length(); length++) {
+                grams.add(gramKey(text, start, length));
+            }
+        }
+    }
+
+    // Packs an n-gram of up to 3 characters into one number: 16 bits per character,
+    // plus the length in the top bits so "a" and "\0a" stay different.
+    private static long gramKey(String text, int start, int length) {
+        long key = length;
+        for (int i = 0; i < length; i++) {
+            key = (key << 16) | text.charAt(start + i);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.shoppinglist;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Writes items one by one to an exported list (see BinaryItemWriter and TextItemWriter).
+// close() finishes the output; until then it may be incomplete.
+public interface ItemWriter extends Closeable {
+
+    void write(Item item) throws IOException;
+
+    // Closes the output without finishing it, when writing failed. A binary file is then left
+    // without its end marker, so it is rejected when read instead of passing as complete.
+    void abort() throws IOException;
+}
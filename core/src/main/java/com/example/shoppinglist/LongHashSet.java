@@ -0,0 +1,157 @@
+package com.example.shoppinglist;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// A set of primitive longs (e.g. item ids).
+//
+// Unlike HashSet<Long>, it stores the values directly in one long[] (open addressing with
+// linear probing) instead of allocating a boxed Long and a map entry per value, so it needs
+// several times less memory and creates no garbage on lookups.
+public class LongHashSet {
+
+    // Marks a free slot. The value itself can still be stored, see hasFreeValue.
+    private static final long FREE = 0;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] slots;
+    private int size;
+    private boolean hasFreeValue;
+    private int resizeAt;
+
+    public LongHashSet() {
+        this(4);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return hasFreeValue;
+        }
+        int mask = slots.length - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            long current = slots[i];
+            if (current == value) {
+                return true;
+            }
+            if (current == FREE) {
+                return false;
+            }
+        }
+    }
+
+    // Adds the value, returns false if it was already in the set.
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (hasFreeValue) {
+                return false;
+            }
+            hasFreeValue = true;
+            size++;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int i = slot(value, mask);
+        while (slots[i] != FREE) {
+            if (slots[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        if (++size >= resizeAt) {
+            rehash(slots.length << 1);
+        }
+        return true;
+    }
+
+    // Removes the value, returns false if it was not in the set.
+    public boolean remove(long value) {
+        if (value == FREE) {
+            if (!hasFreeValue) {
+                return false;
+            }
+            hasFreeValue = false;
+            size--;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int i = slot(value, mask);
+        while (slots[i] != value) {
+            if (slots[i] == FREE) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        // Close the gap: move following values of the same probe run back into it,
+        // so lookups never stop early at the freed slot.
+        int gap = i;
+        for (int j = (gap + 1) & mask; slots[j] != FREE; j = (j + 1) & mask) {
+            int home = slot(slots[j], mask);
+            boolean canMove = gap <= j ? (home <= gap || home > j) : (home <= gap && home > j);
+            if (canMove) {
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        slots[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, FREE);
+        hasFreeValue = false;
+        size = 0;
+    }
+
+    // Calls the action for every value in the set, in no particular order.
+    public void forEach(LongConsumer action) {
+        if (hasFreeValue) {
+            action.accept(FREE);
+        }
+        for (long value : slots) {
+            if (value != FREE) {
+                action.accept(value);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != FREE) {
+                int i = slot(value, mask);
+                while (slots[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = value;
+            }
+        }
+    }
+
+    private static int slot(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.shoppinglist;
+
+import java.util.Arrays;
+
+// A map from primitive longs to primitive longs (e.g. item ids to their order keys).
+//
+// Like LongHashSet, it stores keys and values directly in two long[] (open addressing with
+// linear probing) instead of a boxed Long pair and an entry object per mapping.
+public class LongLongHashMap {
+
+    // Marks a free slot. The key itself can still be stored, see hasFreeKey.
+    private static final long FREE = 0;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private boolean hasFreeKey;
+    private long freeKeyValue;
+    private int resizeAt;
+
+    public LongLongHashMap() {
+        allocate(8);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns the value of the key, or 'missing' if there is none.
+    public long get(long key, long missing) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : missing;
+        }
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                return values[i];
+            }
+            if (current == FREE) {
+                return missing;
+            }
+        }
+    }
+
+    public void put(long key, long value) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    // Removes the key, returns false if it was not in the map.
+    public boolean remove(long key) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                return false;
+            }
+            hasFreeKey = false;
+            size--;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == FREE) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        // Close the gap like LongHashSet.remove() does.
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            boolean canMove = gap <= j ? (home <= gap || home > j) : (home <= gap && home > j);
+            if (canMove) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != FREE) {
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
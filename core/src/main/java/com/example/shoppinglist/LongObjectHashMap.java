@@ -0,0 +1,164 @@
+package com.example.shoppinglist;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// A map from primitive longs to objects (e.g. item ids to their texts).
+//
+// Like LongLongHashMap, it stores the keys directly in a long[] (open addressing with linear
+// probing) next to an array of values, instead of a boxed Long and an entry object per mapping.
+// Values must not be null: get() returns null for a missing key.
+public class LongObjectHashMap<V> {
+
+    // Marks a free slot. The key itself can still be stored, see hasFreeKey.
+    private static final long FREE = 0;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private boolean hasFreeKey;
+    private V freeKeyValue;
+    private int resizeAt;
+
+    public LongObjectHashMap() {
+        allocate(8);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns the value of the key, or null if there is none.
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == FREE) {
+            return freeKeyValue;
+        }
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                return (V) values[i];
+            }
+            if (current == FREE) {
+                return null;
+            }
+        }
+    }
+
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null value for " + key);
+        }
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    // Removes the key and returns its value, or null if it was not in the map.
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == FREE) {
+            V value = freeKeyValue;
+            if (hasFreeKey) {
+                hasFreeKey = false;
+                freeKeyValue = null;
+                size--;
+            }
+            return value;
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == FREE) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+        V value = (V) values[i];
+        // Close the gap like LongHashSet.remove() does.
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            boolean canMove = gap <= j ? (home <= gap || home > j) : (home <= gap && home > j);
+            if (canMove) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = FREE;
+        values[gap] = null;
+        size--;
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        hasFreeKey = false;
+        freeKeyValue = null;
+        size = 0;
+    }
+
+    // Calls the action for every key in the map, in no particular order.
+    public void forEachKey(LongConsumer action) {
+        if (hasFreeKey) {
+            action.accept(FREE);
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != FREE) {
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
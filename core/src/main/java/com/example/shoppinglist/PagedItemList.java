@@ -0,0 +1,177 @@
+package com.example.shoppinglist;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// A list read from an ItemPageSource a page at a time, for lists too long to keep in memory
+// (e.g. a backup being browsed). Only the pages around the rows on screen are kept:
+//
+// - setVisibleRange() tells which rows are shown. Their pages, and 'prefetchPages' pages on
+//   either side, are loaded on the 'loader' executor, the visible ones first.
+// - At most 'maxPages' pages are kept. When there are more, the least recently used page
+//   outside of that window is dropped, so memory stays bounded for any list length.
+// - get() returns null for a row whose page is not loaded yet (and loads it): the UI shows a
+//   placeholder until the Listener reports the page.
+//
+// Everything but the loading itself runs on the thread behind 'callbacks' (the UI thread in
+// the app), so the pages need no locking.
+public class PagedItemList extends AbstractList<Item> implements RandomAccess {
+
+    private static final Logger LOG = Logger.getLogger(PagedItemList.class.getName());
+
+    // Told on the 'callbacks' thread when the rows of a page can be shown.
+    public interface Listener {
+        void onRowsLoaded(int start, int count);
+    }
+
+    private final ItemPageSource source;
+    private final int pageSize;
+    private final int pageCount;
+    private final int maxPages;
+    private final int prefetchPages;
+    private final Executor loader;
+    private final Executor callbacks;
+    private Listener listener;
+
+    // Loaded pages by page number, least recently used first.
+    private final LinkedHashMap<Integer, List<Item>> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Pages being loaded right now, so none is loaded twice.
+    private final Set<Integer> loading = new HashSet<>();
+
+    // The pages of the visible rows and the ones around them, which are never dropped.
+    private int firstWantedPage;
+    private int lastWantedPage = -1;
+
+    private volatile boolean closed;
+
+    public PagedItemList(ItemPageSource source, int maxPages, int prefetchPages, Executor loader,
+                         Executor callbacks) {
+        if (prefetchPages < 0 || maxPages < 2 * prefetchPages + 2) {
+            // The visible rows may span two pages, plus the prefetched ones on both sides.
+            throw new IllegalArgumentException("Cannot keep " + maxPages + " pages with " + prefetchPages
+                    + " prefetched on each side");
+        }
+        this.source = source;
+        this.pageSize = source.pageSize();
+        this.pageCount = (source.size() + pageSize - 1) / pageSize;
+        this.maxPages = maxPages;
+        this.prefetchPages = prefetchPages;
+        this.loader = loader;
+        this.callbacks = callbacks;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Returns the item at the given position, or null while its page is loading.
+    @Override
+    public Item get(int position) {
+        if (position < 0 || position >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size());
+        }
+        int page = position / pageSize;
+        List<Item> items = pages.get(page);
+        if (items == null) {
+            load(page);
+            return null;
+        }
+        return items.get(position - page * pageSize);
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    // Number of pages in memory, at most 'maxPages'.
+    public int loadedPages() {
+        return pages.size();
+    }
+
+    // Loads the pages of the rows from 'first' to 'last' (both included) and the ones around
+    // them, and drops pages far away from them if there are too many.
+    public void setVisibleRange(int first, int last) {
+        if (pageCount == 0 || first < 0 || last < first) {
+            return;
+        }
+        int firstVisible = first / pageSize;
+        int lastVisible = Math.min(last / pageSize, pageCount - 1);
+        firstWantedPage = Math.max(0, firstVisible - prefetchPages);
+        lastWantedPage = Math.min(pageCount - 1, lastVisible + prefetchPages);
+        for (int page = firstVisible; page <= lastVisible; page++) {
+            load(page);
+        }
+        // Then outwards, the nearest pages first.
+        for (int distance = 1; distance <= prefetchPages; distance++) {
+            if (lastVisible + distance <= lastWantedPage) {
+                load(lastVisible + distance);
+            }
+            if (firstVisible - distance >= firstWantedPage) {
+                load(firstVisible - distance);
+            }
+        }
+    }
+
+    // Drops all pages and closes the source. Loads still running are ignored.
+    public void close() throws IOException {
+        closed = true;
+        pages.clear();
+        source.close();
+    }
+
+    private void load(int page) {
+        if (closed || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+        loader.execute(() -> {
+            List<Item> items = null;
+            if (!closed) {
+                try {
+                    items = source.loadPage(page);
+                } catch (IOException | RuntimeException e) {
+                    if (!closed) {
+                        // The page is loaded again when it is asked for the next time.
+                        LOG.log(Level.WARNING, "Could not load page " + page, e);
+                    }
+                }
+            }
+            List<Item> loaded = items;
+            callbacks.execute(() -> loaded(page, loaded));
+        });
+    }
+
+    private void loaded(int page, List<Item> items) {
+        loading.remove(page);
+        if (closed || items == null) {
+            return;
+        }
+        pages.put(page, items);
+        evict();
+        if (listener != null && pages.containsKey(page)) {
+            listener.onRowsLoaded(page * pageSize, items.size());
+        }
+    }
+
+    // Drops the least recently used pages outside of the wanted ones until 'maxPages' are left.
+    private void evict() {
+        Iterator<Map.Entry<Integer, List<Item>>> entries = pages.entrySet().iterator();
+        while (pages.size() > maxPages && entries.hasNext()) {
+            int page = entries.next().getKey();
+            if (page < firstWantedPage || page > lastWantedPage) {
+                entries.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.shoppinglist;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters and histograms measuring the hot paths of the app (binds, list changes, adapter
+// notifications), meant to stay on in release builds.
+//
+// Each counter and histogram has a name; by convention, histograms of durations end in "_ns".
+// Looking one up by name goes through a map, so callers fetch theirs once and keep the
+// reference: recording is then only a few atomic operations (see Histogram).
+//
+// The report is available as text (for a debug screen or dumpsys) and as JSON (for collecting
+// traces from real devices and comparing them between versions).
+public class PerfStats {
+
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    // Returns the counter with the given name, creating it on first use.
+    public AtomicLong counter(String name) {
+        return counters.computeIfAbsent(name, key -> new AtomicLong());
+    }
+
+    // Returns the histogram with the given name, creating it on first use.
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    // Sets all counters and histograms back to zero, e.g. before reproducing a problem.
+    public void reset() {
+        for (AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    // A report for people, e.g.:
+    //
+    //   adapter.full_invalidations        0
+    //   adapter.bind_ns                   n=1234 mean=18200 p50=16383 p90=28671 p99=49151 max=61230
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, AtomicLong> counter : new TreeMap<>(counters).entrySet()) {
+            text.append(String.format(Locale.ROOT, "%-34s %d%n", counter.getKey(), counter.getValue().get()));
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            text.append(String.format(Locale.ROOT, "%-34s n=%d mean=%.0f p50=%d p90=%d p99=%d max=%d%n",
+                    entry.getKey(), histogram.count(), histogram.mean(), histogram.percentile(0.5),
+                    histogram.percentile(0.9), histogram.percentile(0.99), histogram.max()));
+        }
+        return text.toString();
+    }
+
+    // The same report as JSON:
+    //
+    //   {"counters":{"name":0,...},
+    //    "histograms":{"name":{"count":0,"sum":0,"max":0,"p50":0,"p90":0,"p99":0},...}}
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        String separator = "";
+        for (Map.Entry<String, AtomicLong> counter : new TreeMap<>(counters).entrySet()) {
+            json.append(separator);
+            appendString(json, counter.getKey());
+            json.append(':').append(counter.getValue().get());
+            separator = ",";
+        }
+        json.append("},\"histograms\":{");
+        separator = "";
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            json.append(separator);
+            appendString(json, entry.getKey());
+            json.append(":{\"count\":").append(histogram.count())
+                    .append(",\"sum\":").append(histogram.sum())
+                    .append(",\"max\":").append(histogram.max())
+                    .append(",\"p50\":").append(histogram.percentile(0.5))
+                    .append(",\"p90\":").append(histogram.percentile(0.9))
+                    .append(",\"p99\":").append(histogram.percentile(0.99))
+                    .append('}');
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void appendString(StringBuilder json, String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
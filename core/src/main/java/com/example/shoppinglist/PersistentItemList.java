@@ -0,0 +1,243 @@
+package com.example.shoppinglist;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
+
+// An immutable list of items where every change returns a new list that shares almost all of
+// its memory with the old one.
+//
+// The items are kept in a balanced binary tree (an AVL tree ordered by position), where every
+// node knows the size of its subtree. A change only copies the nodes on the path from the root
+// to the changed position, about log2(n) of them; all other nodes are shared. So inserting,
+// removing or replacing an item costs O(log n) time and memory, and the old list stays valid
+// and unchanged. That makes every version a snapshot that can be read from any thread without
+// locking, while newer versions are being created.
+//
+// get() and indexOfKey() also take O(log n); iterating over the whole list takes O(n).
+public final class PersistentItemList extends AbstractList<Item> {
+
+    private static final PersistentItemList EMPTY = new PersistentItemList(null);
+
+    private final Node root;
+
+    private PersistentItemList(Node root) {
+        this.root = root;
+    }
+
+    public static PersistentItemList empty() {
+        return EMPTY;
+    }
+
+    // Builds a balanced tree holding the given items, in O(n).
+    public static PersistentItemList copyOf(List<Item> items) {
+        if (items instanceof PersistentItemList) {
+            return (PersistentItemList) items;
+        }
+        Item[] array = items.toArray(new Item[0]);
+        return array.length == 0 ? EMPTY : new PersistentItemList(build(array, 0, array.length));
+    }
+
+    @Override
+    public Item get(int index) {
+        checkIndex(index, size());
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.item;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    // Returns a list with the item inserted at the given position (0 to size()).
+    public PersistentItemList withInserted(int index, Item item) {
+        checkIndex(index, size() + 1);
+        return new PersistentItemList(insert(root, index, item));
+    }
+
+    // Returns a list without the item at the given position.
+    public PersistentItemList withRemoved(int index) {
+        checkIndex(index, size());
+        return new PersistentItemList(remove(root, index));
+    }
+
+    // Returns a list with the item at the given position replaced.
+    public PersistentItemList withReplaced(int index, Item item) {
+        checkIndex(index, size());
+        return new PersistentItemList(replace(root, index, item));
+    }
+
+    // Position of the item whose key is 'key', or -1 if there is none, in O(log n). Only works
+    // if the list is sorted by the keys 'keyOf' gives its items, with every key used once.
+    public int indexOfKey(ToLongFunction<Item> keyOf, long key) {
+        Node node = root;
+        int offset = 0;
+        while (node != null) {
+            long nodeKey = keyOf.applyAsLong(node.item);
+            if (key < nodeKey) {
+                node = node.left;
+            } else if (key > nodeKey) {
+                offset += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return offset + size(node.left);
+            }
+        }
+        return -1;
+    }
+
+    // Walks the tree in order, without the O(log n) lookup per item that get() would need.
+    @Override
+    public Iterator<Item> iterator() {
+        return new Iterator<Item>() {
+            // The nodes whose item and right subtree are still to be visited, deepest on top.
+            private final Deque<Node> path = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public Item next() {
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node node = path.pop();
+                pushLeft(node.right);
+                return node.item;
+            }
+
+            private void pushLeft(Node node) {
+                for (; node != null; node = node.left) {
+                    path.push(node);
+                }
+            }
+        };
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static final class Node {
+        final Item item;
+        final Node left;
+        final Node right;
+        final int size;
+        final int height;
+
+        Node(Node left, Item item, Node right) {
+            this.item = item;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + 1 + size(right);
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static Node build(Item[] items, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(build(items, from, middle), items[middle], build(items, middle + 1, to));
+    }
+
+    private static Node insert(Node node, int index, Item item) {
+        if (node == null) {
+            return new Node(null, item, null);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            return balance(insert(node.left, index, item), node.item, node.right);
+        }
+        return balance(node.left, node.item, insert(node.right, index - leftSize - 1, item));
+    }
+
+    private static Node remove(Node node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return balance(remove(node.left, index), node.item, node.right);
+        }
+        if (index > leftSize) {
+            return balance(node.left, node.item, remove(node.right, index - leftSize - 1));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        // Replace the item with the first one of the right subtree.
+        return balance(node.left, first(node.right), remove(node.right, 0));
+    }
+
+    private static Node replace(Node node, int index, Item item) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return new Node(replace(node.left, index, item), node.item, node.right);
+        }
+        if (index > leftSize) {
+            return new Node(node.left, node.item, replace(node.right, index - leftSize - 1, item));
+        }
+        return new Node(node.left, item, node.right);
+    }
+
+    private static Item first(Node node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.item;
+    }
+
+    // Creates a node from two subtrees whose heights differ by at most 2, rotating them so the
+    // difference of the result is at most 1 again.
+    private static Node balance(Node left, Item item, Node right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.left, left.item, new Node(left.right, item, right));
+            }
+            return new Node(new Node(left.left, left.item, left.right.left), left.right.item,
+                    new Node(left.right.right, item, right));
+        }
+        if (difference < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(new Node(left, item, right.left), right.item, right.right);
+            }
+            return new Node(new Node(left, item, right.left.left), right.left.item,
+                    new Node(right.left.right, right.item, right.right));
+        }
+        return new Node(left, item, right);
+    }
+}
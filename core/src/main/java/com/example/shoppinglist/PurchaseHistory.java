@@ -0,0 +1,354 @@
+package com.example.shoppinglist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// This class remembers which items were bought before and suggests them while the user types.
+//
+// Every item text put on the list is recorded with how often and how recently it was used.
+// Both are combined into one score that fades with time: an item bought ten times but not for a
+// year ranks below one bought three times this month. The score is kept as
+//
+//   log(weight) + lastUsed / DECAY_MS
+//
+// which does not change while time passes, so the ranking only has to be updated when an item
+// is recorded again.
+//
+// The entries are kept in one set of arrays sorted by their normalized text, so all texts
+// starting with a prefix form one range, found by binary search. A max-tree over the scores then
+// yields the best k entries of that range in O(k log n), without looking at the whole range.
+//
+// The history is loaded from disk on first use, saved in the background after changes and kept
+// below MAX_ENTRIES by dropping the entries with the lowest score (rarely and long ago used).
+// All public methods are thread-safe, so suggestions can be computed on a background thread.
+public class PurchaseHistory {
+
+    private static final Logger LOG = Logger.getLogger(PurchaseHistory.class.getName());
+
+    // Most entries kept; when exceeded, the lowest-scored EVICT_FRACTION of them are dropped.
+    static final int MAX_ENTRIES = 2000;
+    static final double EVICT_FRACTION = 0.1;
+
+    // Longer texts are not worth suggesting (e.g. a pasted note) and are not recorded.
+    static final int MAX_TEXT_LENGTH = 200;
+
+    // How fast old purchases fade: their weight drops by a factor e every 30 days.
+    static final double DECAY_MS = 30L * 24 * 60 * 60 * 1000;
+
+    private static final int FILE_MAGIC = 0x53484831; // "SHH1"
+
+    private final File file;
+    private final LongSupplier clock;
+
+    // Saves the history to disk in the background.
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "PurchaseHistory"));
+
+    private boolean loaded;
+
+    // Whether a save has been scheduled but has not copied the entries yet; further changes
+    // until then are written by that same save.
+    private boolean savePending;
+
+    // Entries sorted by key (the normalized text), all arrays indexed the same way.
+    private int size;
+    private String[] keys = new String[0];
+    private String[] texts = new String[0];
+    private int[] counts = new int[0];
+    private long[] lastUsed = new long[0];
+    private double[] scores = new double[0];
+
+    // Max-tree over 'scores': tree[leaves + i] = i, every inner node holds the index of the
+    // best scored entry below it.
+    private int[] tree = new int[0];
+    private int leaves;
+
+    public PurchaseHistory(File file) {
+        this(file, System::currentTimeMillis);
+    }
+
+    // Constructor taking the clock in milliseconds, so tests can control time.
+    PurchaseHistory(File file, LongSupplier clock) {
+        this.file = file;
+        this.clock = clock;
+    }
+
+    // Records that an item with this text was put on the list.
+    public synchronized void record(String text) {
+        String trimmed = text.trim();
+        String key = ItemSearchIndex.normalize(trimmed);
+        if (key.isEmpty() || trimmed.length() > MAX_TEXT_LENGTH) {
+            return;
+        }
+        ensureLoaded();
+        long now = clock.getAsLong();
+        double timeScore = now / DECAY_MS;
+
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            // weight = weight * e^(-age / DECAY_MS) + 1, written in terms of the stored score.
+            scores[index] = timeScore + Math.log1p(Math.exp(scores[index] - timeScore));
+            counts[index]++;
+            lastUsed[index] = now;
+            texts[index] = trimmed;
+            updateTree(index);
+        } else {
+            insert(-index - 1, key, trimmed, 1, now, timeScore);
+            if (size > MAX_ENTRIES) {
+                evict();
+            }
+        }
+        if (!savePending) {
+            savePending = true;
+            saver.execute(this::save);
+        }
+    }
+
+    // Returns up to 'limit' texts starting with the prefix (ignoring case and accents),
+    // best scored first.
+    public synchronized List<String> suggest(String prefix, int limit) {
+        String key = ItemSearchIndex.normalize(prefix.trim());
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        ensureLoaded();
+        int from = lowerBound(key);
+        int to = lowerBound(key + Character.MAX_VALUE);
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+
+        // Repeatedly take the best entry of a range, then split the range around it.
+        List<String> result = new ArrayList<>(limit);
+        PriorityQueue<int[]> ranges = new PriorityQueue<>(
+                (a, b) -> Double.compare(scores[b[2]], scores[a[2]]));
+        ranges.add(new int[]{from, to, best(from, to)});
+        while (!ranges.isEmpty() && result.size() < limit) {
+            int[] range = ranges.poll();
+            int best = range[2];
+            result.add(texts[best]);
+            if (range[0] < best) {
+                ranges.add(new int[]{range[0], best, best(range[0], best)});
+            }
+            if (best + 1 < range[1]) {
+                ranges.add(new int[]{best + 1, range[1], best(best + 1, range[1])});
+            }
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        return size;
+    }
+
+    // Stops the background thread once the pending saves are written, without waiting for them.
+    public void close() {
+        saver.shutdown();
+    }
+
+    // Waits until close() has written the pending saves.
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return saver.awaitTermination(timeout, unit);
+    }
+
+    private void insert(int index, String key, String text, int count, long used, double score) {
+        if (size == keys.length) {
+            int capacity = Math.max(16, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            lastUsed = Arrays.copyOf(lastUsed, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+        }
+        int moved = size - index;
+        System.arraycopy(keys, index, keys, index + 1, moved);
+        System.arraycopy(texts, index, texts, index + 1, moved);
+        System.arraycopy(counts, index, counts, index + 1, moved);
+        System.arraycopy(lastUsed, index, lastUsed, index + 1, moved);
+        System.arraycopy(scores, index, scores, index + 1, moved);
+        keys[index] = key;
+        texts[index] = text;
+        counts[index] = count;
+        lastUsed[index] = used;
+        scores[index] = score;
+        size++;
+        // All entries after 'index' moved, so the tree is rebuilt (this is rare and O(n)).
+        buildTree();
+    }
+
+    // Drops the lowest scored EVICT_FRACTION of the entries, keeping the remaining ones in key
+    // order. Entries are ranked rather than cut at a score, so that many entries with the same
+    // score (e.g. all recorded at once) are still dropped; ties go by key order.
+    private void evict() {
+        Integer[] ranked = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            ranked[i] = i;
+        }
+        Arrays.sort(ranked, (a, b) -> {
+            int byScore = Double.compare(scores[a], scores[b]);
+            return byScore != 0 ? byScore : Integer.compare(a, b);
+        });
+        boolean[] dropped = new boolean[size];
+        int drop = Math.max(size - MAX_ENTRIES, (int) (size * EVICT_FRACTION));
+        for (int i = 0; i < drop; i++) {
+            dropped[ranked[i]] = true;
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!dropped[i]) {
+                keys[kept] = keys[i];
+                texts[kept] = texts[i];
+                counts[kept] = counts[i];
+                lastUsed[kept] = lastUsed[i];
+                scores[kept] = scores[i];
+                kept++;
+            }
+        }
+        Arrays.fill(keys, kept, size, null);
+        Arrays.fill(texts, kept, size, null);
+        size = kept;
+        buildTree();
+    }
+
+    private void buildTree() {
+        leaves = 1;
+        while (leaves < size) {
+            leaves <<= 1;
+        }
+        tree = new int[2 * leaves];
+        for (int i = 0; i < leaves; i++) {
+            tree[leaves + i] = i < size ? i : -1;
+        }
+        for (int node = leaves - 1; node >= 1; node--) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    private void updateTree(int index) {
+        for (int node = (leaves + index) / 2; node >= 1; node /= 2) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    // Index of the best scored entry in [from, to).
+    private int best(int from, int to) {
+        int result = -1;
+        for (int lo = from + leaves, hi = to + leaves; lo < hi; lo /= 2, hi /= 2) {
+            if ((lo & 1) == 1) result = better(result, tree[lo++]);
+            if ((hi & 1) == 1) result = better(result, tree[--hi]);
+        }
+        return result;
+    }
+
+    private int better(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        return scores[b] > scores[a] ? b : a;
+    }
+
+    // First position whose key is not smaller than 'key'.
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (file.exists()) {
+            try {
+                load();
+            } catch (IOException e) {
+                // Losing suggestions is not a big deal, start with an empty history.
+                LOG.log(Level.WARNING, "Could not load the purchase history", e);
+                size = 0;
+            }
+        }
+        buildTree();
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a purchase history: " + file);
+            }
+            int count = in.readInt();
+            keys = new String[count];
+            texts = new String[count];
+            counts = new int[count];
+            lastUsed = new long[count];
+            scores = new double[count];
+            for (int i = 0; i < count; i++) {
+                texts[i] = in.readUTF();
+                keys[i] = ItemSearchIndex.normalize(texts[i]);
+                counts[i] = in.readInt();
+                lastUsed[i] = in.readLong();
+                scores[i] = in.readDouble();
+            }
+            size = count;
+        }
+    }
+
+    // Runs on the background thread: copies the entries and writes them to a temporary file,
+    // which then replaces the old one.
+    private void save() {
+        String[] savedTexts;
+        int[] savedCounts;
+        long[] savedLastUsed;
+        double[] savedScores;
+        synchronized (this) {
+            savePending = false;
+            savedTexts = Arrays.copyOf(texts, size);
+            savedCounts = Arrays.copyOf(counts, size);
+            savedLastUsed = Arrays.copyOf(lastUsed, size);
+            savedScores = Arrays.copyOf(scores, size);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(savedTexts.length);
+                for (int i = 0; i < savedTexts.length; i++) {
+                    out.writeUTF(savedTexts[i]);
+                    out.writeInt(savedCounts[i]);
+                    out.writeLong(savedLastUsed[i]);
+                    out.writeDouble(savedScores[i]);
+                }
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not replace " + file);
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not save the purchase history", e);
+        }
+    }
+}
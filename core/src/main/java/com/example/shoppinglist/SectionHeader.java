@@ -0,0 +1,49 @@
+package com.example.shoppinglist;
+
+// The header row of a section in a SectionedItemList: which section it starts, how many items
+// the section holds and whether they are hidden.
+//
+// Headers are rows of the same list as the items, so they are Items too, with negative ids:
+// ItemIdGenerator only hands out positive ones. A header is never part of ItemListModel.
+public class SectionHeader extends Item {
+
+    private final int section;
+    private final int size;
+    private final boolean collapsed;
+
+    public SectionHeader(int section, int size, boolean collapsed) {
+        super(idOf(section), "", false);
+        setImportance(Item.ImportanceLevel.values()[section]);
+        this.section = section;
+        this.size = size;
+        this.collapsed = collapsed;
+    }
+
+    // The id of the header of a section, the same in every version of the list. -1 is left out:
+    // it is RecyclerView.NO_ID, and the adapter uses the ids as stable ids.
+    public static long idOf(int section) {
+        return -2 - section;
+    }
+
+    public int getSection() {
+        return section;
+    }
+
+    // Number of items in the section, also while they are hidden.
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isCollapsed() {
+        return collapsed;
+    }
+
+    @Override
+    public boolean hasSameContents(Item other) {
+        if (!(other instanceof SectionHeader)) {
+            return false;
+        }
+        SectionHeader header = (SectionHeader) other;
+        return section == header.section && size == header.size && collapsed == header.collapsed;
+    }
+}
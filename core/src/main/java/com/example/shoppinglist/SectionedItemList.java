@@ -0,0 +1,183 @@
+package com.example.shoppinglist;
+
+import java.util.AbstractList;
+import java.util.List;
+
+// A read-only view of a list snapshot as the rows of a sectioned list: a SectionHeader before
+// the items of every importance level that has any, then the new entries without a header.
+//
+//   [ header ][ IMPORTANT ... ][ header ][ NORMAL ... ][ header ][ UNIMPORTANT ... ][ new entries ... ]
+//
+// A collapsed section only shows its header. Nothing is copied: the snapshot (or a
+// FilteredItemList of it) is already in this order, so the view only finds where each section
+// starts, with a binary search per section, and then maps a row to (section, offset) with a
+// binary search over the few section starts. Both stay O(log n) for a list of any size, and
+// collapsing a section (see withCollapsed()) takes no work per item at all.
+public class SectionedItemList extends AbstractList<Item> {
+
+    // One section per Item.ImportanceLevel, in enum order. The new entries come after them.
+    public static final int SECTIONS = Item.ImportanceLevel.values().length;
+
+    private final List<Item> source;
+    private final boolean[] collapsed;
+
+    // Per section: position of its first item in 'source' and number of items.
+    private final int[] firstItems = new int[SECTIONS + 1];
+    private final int[] sizes = new int[SECTIONS + 1];
+
+    // Per section (and for the new entries, at index SECTIONS): the row where it starts, i.e.
+    // its header row, or the row after the previous section if it has no header.
+    private final int[] startRows = new int[SECTIONS + 1];
+
+    // The header row of every section that has one.
+    private final SectionHeader[] headers = new SectionHeader[SECTIONS];
+
+    private final int size;
+
+    // Creates the view of 'source', which must be in display order (see ItemListModel).
+    // 'collapsed' tells which sections only show their header, by section, and is not kept.
+    public SectionedItemList(List<Item> source, boolean[] collapsed) {
+        this(source, collapsed.clone(), null);
+    }
+
+    private SectionedItemList(List<Item> source, boolean[] collapsed, SectionedItemList sameSource) {
+        this.source = source;
+        this.collapsed = collapsed;
+        if (sameSource != null) {
+            System.arraycopy(sameSource.firstItems, 0, firstItems, 0, firstItems.length);
+            System.arraycopy(sameSource.sizes, 0, sizes, 0, sizes.length);
+        } else {
+            int start = 0;
+            for (int section = 0; section <= SECTIONS; section++) {
+                int end = section == SECTIONS ? source.size() : firstPositionAfter(source, section, start);
+                firstItems[section] = start;
+                sizes[section] = end - start;
+                start = end;
+            }
+        }
+        int row = 0;
+        for (int section = 0; section <= SECTIONS; section++) {
+            startRows[section] = row;
+            row += shownRows(section);
+            if (hasHeader(section)) {
+                headers[section] = new SectionHeader(section, sizes[section], collapsed[section]);
+            }
+        }
+        this.size = row;
+    }
+
+    // The section an item belongs to.
+    public static int sectionOf(Item item) {
+        return item.isNewEntry() ? SECTIONS : item.getImportance().ordinal();
+    }
+
+    // The same list with one section collapsed or expanded, in O(1): the items are not looked at.
+    public SectionedItemList withCollapsed(int section, boolean collapse) {
+        boolean[] newCollapsed = collapsed.clone();
+        newCollapsed[section] = collapse;
+        return new SectionedItemList(source, newCollapsed, this);
+    }
+
+    public boolean isCollapsed(int section) {
+        return collapsed[section];
+    }
+
+    // Number of items in the section, shown or not.
+    public int sectionSize(int section) {
+        return sizes[section];
+    }
+
+    // Row of the header of the section, or -1 if it has none (it is empty, or the new entries).
+    public int headerRow(int section) {
+        return hasHeader(section) ? startRows[section] : -1;
+    }
+
+    // The section the row belongs to; the new entries are section SECTIONS. O(log SECTIONS).
+    public int sectionAt(int row) {
+        checkRow(row);
+        // The last section starting at or before the row. Empty sections start at the same row
+        // as the next one, so the search has to find the last of equal starts.
+        int low = 0;
+        int high = SECTIONS;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (startRows[middle] <= row) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    // Position of the row's item inside its section, or -1 for a header row.
+    public int offsetAt(int row) {
+        int section = sectionAt(row);
+        return row - startRows[section] - (hasHeader(section) ? 1 : 0);
+    }
+
+    // Row of the item at 'offset' in the section, or -1 if the section is collapsed.
+    public int rowOf(int section, int offset) {
+        if (offset < 0 || offset >= sizes[section]) {
+            throw new IndexOutOfBoundsException("Offset: " + offset + ", Section size: " + sizes[section]);
+        }
+        if (collapsed(section)) {
+            return -1;
+        }
+        return startRows[section] + (hasHeader(section) ? 1 : 0) + offset;
+    }
+
+    @Override
+    public Item get(int row) {
+        int section = sectionAt(row);
+        int offset = row - startRows[section];
+        if (hasHeader(section)) {
+            if (offset == 0) {
+                return headers[section];
+            }
+            offset--;
+        }
+        return source.get(firstItems[section] + offset);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private boolean hasHeader(int section) {
+        return section < SECTIONS && sizes[section] > 0;
+    }
+
+    private boolean collapsed(int section) {
+        return section < SECTIONS && collapsed[section];
+    }
+
+    private int shownRows(int section) {
+        if (!hasHeader(section)) {
+            return sizes[section];
+        }
+        return 1 + (collapsed[section] ? 0 : sizes[section]);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+    }
+
+    // Position of the first item after 'section', searching from 'from' on. O(log n) lookups.
+    private static int firstPositionAfter(List<Item> items, int section, int from) {
+        int low = from;
+        int high = items.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sectionOf(items.get(middle)) <= section) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.shoppinglist;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// This class keeps a shopping list in sync with the other devices of a household, sending
+// only what changed instead of the whole list.
+//
+// Added as a ChangeListener to the ItemListModel, it keeps a SyncRecord per item id: the text,
+// the importance and whether the item was removed, each with the stamp of its last change (see
+// SyncRecord for how concurrent edits are merged). Changed fields are remembered until the
+// server has received them. A sync sends them in one compact, compressed SyncMessage, and
+// applies the fields changed by other devices since the last sync to the model, as one batch.
+//
+// Item ids identify items across devices: ItemIdGenerator puts the replica id of the device
+// into every id it hands out, so give the generator and the client of a device the same one.
+//
+// New entries (the blank row being typed into) are drafts and stay on this device. An item is
+// shared once it is placed into an importance bucket.
+//
+// Like ItemListModel, all methods must be called on the thread that changes the model (see
+// ItemListStore), and not from inside ItemListModel.batch().
+public class SyncClient implements ItemListModel.ChangeListener {
+
+    private static final class Entry {
+        final SyncRecord record;
+        // Whether the item is known to other devices (it is no draft).
+        boolean shared;
+        // Fields changed here that the server has not received yet.
+        int dirtyFields;
+
+        Entry(long id) {
+            record = new SyncRecord(id);
+        }
+    }
+
+    private final long replicaId;
+
+    // Lamport clock: larger than every clock seen in a stamp so far.
+    private long clock;
+
+    // The sequence number of the server up to which its changes have been applied.
+    private long serverSequence;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    // Entries with dirty fields, in the order they were changed.
+    private final List<Entry> dirty = new ArrayList<>();
+
+    // The clock when the last request was created: once its answer arrives, every change
+    // stamped up to this clock has reached the server.
+    private long requestClock;
+
+    // Set while changes from the server are applied, so they are not sent back as our own.
+    private boolean applyingRemote;
+
+    // Creates a client with a random replica id.
+    public SyncClient() {
+        this(SyncRecord.randomReplicaId());
+    }
+
+    // Creates a client with the given replica id, which should differ between the devices of
+    // a list. Only its low SyncRecord.REPLICA_BITS are used, and those must not all be 0.
+    public SyncClient(long replicaId) {
+        if ((replicaId & SyncRecord.REPLICA_MASK) == 0) {
+            throw new IllegalArgumentException("Replica id " + replicaId + " has no low bits set");
+        }
+        this.replicaId = replicaId;
+    }
+
+    // Starts tracking the items that were on the list before this client was added as a
+    // ChangeListener, e.g. the restored ones. Their values get the lowest possible stamps,
+    // so any edit made elsewhere wins over them.
+    public void trackExisting(List<Item> items) {
+        for (Item item : items) {
+            Entry entry = newEntry(item, SyncRecord.stamp(0, replicaId));
+            if (entry.shared) {
+                markDirty(entry, SyncRecord.TEXT | SyncRecord.IMPORTANCE);
+            }
+        }
+    }
+
+    // Number of items with changes the server has not received yet.
+    public int pendingChanges() {
+        return dirty.size();
+    }
+
+    // Sends the local changes to the server and applies the changes made elsewhere.
+    // If the exchange fails, nothing is lost: the changes are sent again by the next sync.
+    public void sync(ItemListModel model, SyncTransport transport) throws IOException {
+        applyResponse(model, transport.exchange(createRequest()));
+    }
+
+    // The two halves of sync(), for a transport that has to run on another thread.
+    // No other request may be created before the answer to this one has been applied.
+    public byte[] createRequest() {
+        requestClock = clock;
+        List<SyncRecord> changes = new ArrayList<>(dirty.size());
+        for (Entry entry : dirty) {
+            changes.add(entry.record.select(entry.dirtyFields));
+        }
+        return new SyncMessage(serverSequence, changes).encode();
+    }
+
+    public void applyResponse(ItemListModel model, byte[] response) throws IOException {
+        // Decode everything first, so a damaged answer changes nothing.
+        SyncMessage message = SyncMessage.decode(response);
+
+        for (Entry entry : dirty) {
+            SyncRecord record = entry.record;
+            if (SyncRecord.clockOf(record.textStamp) <= requestClock) {
+                entry.dirtyFields &= ~SyncRecord.TEXT;
+            }
+            if (SyncRecord.clockOf(record.importanceStamp) <= requestClock) {
+                entry.dirtyFields &= ~SyncRecord.IMPORTANCE;
+            }
+            if (SyncRecord.clockOf(record.removedStamp) <= requestClock) {
+                entry.dirtyFields &= ~SyncRecord.REMOVED;
+            }
+        }
+
+        applyingRemote = true;
+        try {
+            model.batch(() -> {
+                for (SyncRecord record : message.records) {
+                    applyRemote(model, record);
+                }
+            });
+        } finally {
+            applyingRemote = false;
+        }
+        dirty.removeIf(entry -> entry.dirtyFields == 0);
+        serverSequence = message.sequence;
+    }
+
+    @Override
+    public void onItemAdded(Item item) {
+        if (applyingRemote) {
+            return;
+        }
+        Entry entry = newEntry(item, nextStamp());
+        if (entry.shared) {
+            markDirty(entry, SyncRecord.TEXT | SyncRecord.IMPORTANCE);
+        }
+    }
+
+    @Override
+    public void onItemRemoved(long id) {
+        Entry entry = applyingRemote ? null : entries.get(id);
+        if (entry == null) {
+            return;
+        }
+        if (!entry.shared) {
+            // A draft nobody else has seen: nothing to tell the others.
+            entries.remove(id);
+            return;
+        }
+        SyncRecord removal = new SyncRecord(id);
+        removal.removedStamp = nextStamp();
+        entry.record.merge(removal);
+        // The removal is all there is left to send.
+        markDirty(entry, SyncRecord.REMOVED);
+        entry.dirtyFields = SyncRecord.REMOVED;
+    }
+
+    @Override
+    public void onItemTextChanged(long id, String text) {
+        Entry entry = applyingRemote ? null : entries.get(id);
+        if (entry == null || entry.record.isRemoved()) {
+            return;
+        }
+        entry.record.text = text;
+        entry.record.textStamp = nextStamp();
+        if (entry.shared) {
+            markDirty(entry, SyncRecord.TEXT);
+        }
+    }
+
+    @Override
+    public void onItemImportanceChanged(long id, Item.ImportanceLevel importance) {
+        Entry entry = applyingRemote ? null : entries.get(id);
+        if (entry == null || entry.record.isRemoved()) {
+            return;
+        }
+        entry.record.importance = importance;
+        entry.record.importanceStamp = nextStamp();
+        if (!entry.shared) {
+            // Placing a draft shares it, text and all.
+            entry.shared = true;
+            markDirty(entry, SyncRecord.TEXT | SyncRecord.IMPORTANCE);
+        } else {
+            markDirty(entry, SyncRecord.IMPORTANCE);
+        }
+    }
+
+    private Entry newEntry(Item item, long stamp) {
+        Entry entry = new Entry(item.getId());
+        entry.record.text = item.getText();
+        entry.record.textStamp = stamp;
+        entry.record.importance = item.getImportance();
+        entry.record.importanceStamp = stamp;
+        entry.shared = !item.isNewEntry();
+        entries.put(item.getId(), entry);
+        return entry;
+    }
+
+    // Merges a record from the server and makes the model show the result.
+    private void applyRemote(ItemListModel model, SyncRecord remote) {
+        clock = Math.max(clock, SyncRecord.clockOf(remote.maxStamp()));
+        Entry entry = entries.get(remote.id);
+        if (entry == null) {
+            entry = new Entry(remote.id);
+            entry.shared = true;
+            entries.put(remote.id, entry);
+        } else if (!entry.shared) {
+            // Another device used the id of our draft; keep the draft. Ids hold the replica id of
+            // the device that created them, so this needs two devices sharing the low bits of
+            // their replica ids, or ids that did not come from ItemIdGenerator. A shared item
+            // would be merged with the remote one just the same.
+            return;
+        }
+        int changed = entry.record.merge(remote);
+        // Where the remote value won, we have nothing newer to send.
+        entry.dirtyFields &= ~changed;
+        if ((changed & SyncRecord.REMOVED) != 0) {
+            entry.dirtyFields = 0;
+        }
+
+        SyncRecord record = entry.record;
+        int position = model.indexOf(remote.id);
+        if (record.isRemoved()) {
+            if (position >= 0) {
+                model.remove(remote.id);
+            }
+            return;
+        }
+        if (position < 0) {
+            Item item = new Item(remote.id, record.text, false);
+            item.setImportance(record.importance);
+            model.add(item);
+            return;
+        }
+        Item item = model.get(position);
+        if (!item.getText().equals(record.text)) {
+            // Setting the text shows or hides the buttons like typing does, keep them as they are.
+            boolean expanded = item.isOptionsExpanded();
+            model.setText(remote.id, record.text);
+            model.setOptionsExpanded(remote.id, expanded);
+        }
+        if (item.getImportance() != record.importance) {
+            model.setImportance(remote.id, record.importance);
+        }
+    }
+
+    private long nextStamp() {
+        return SyncRecord.stamp(++clock, replicaId);
+    }
+
+    private void markDirty(Entry entry, int fields) {
+        if (entry.dirtyFields == 0) {
+            dirty.add(entry);
+        }
+        entry.dirtyFields |= fields;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.shoppinglist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// One message of the sync protocol: a sequence number and a batch of (partial) SyncRecords.
+//
+// A request from SyncClient carries the last server sequence number the client has seen and
+// its local changes; the answer of the server carries its current sequence number and the
+// changes the client has not seen yet. Only the fields that changed are sent.
+//
+// The encoding is kept small for mobile data:
+//
+//   [format][sequence][count] then per record: [id delta][flags][fields...]
+//
+// Numbers are varints, records are sorted by id so ids are sent as (mostly small) differences,
+// and the flags byte holds both the fields present and the importance. If deflating the whole
+// message makes it smaller, the deflated bytes are sent instead (format DEFLATED).
+final class SyncMessage {
+
+    private static final byte PLAIN = 0;
+    private static final byte DEFLATED = 1;
+
+    // Largest message we accept; anything bigger means it is damaged (or malicious).
+    static final int MAX_MESSAGE_LENGTH = 16 << 20;
+
+    private static final int IMPORTANCE_SHIFT = 3;
+
+    final long sequence;
+    final List<SyncRecord> records;
+
+    SyncMessage(long sequence, List<SyncRecord> records) {
+        this.sequence = sequence;
+        this.records = records;
+    }
+
+    byte[] encode() {
+        SyncRecord[] sorted = records.toArray(new SyncRecord[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(record -> record.id));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + sorted.length * 16);
+        out.write(PLAIN);
+        writeVarLong(out, sequence);
+        writeVarLong(out, sorted.length);
+        long previousId = 0;
+        for (SyncRecord record : sorted) {
+            writeVarLong(out, record.id - previousId);
+            previousId = record.id;
+            int fields = record.knownFields();
+            out.write(fields | record.importance.ordinal() << IMPORTANCE_SHIFT);
+            if ((fields & SyncRecord.REMOVED) != 0) {
+                writeVarLong(out, record.removedStamp);
+            }
+            if ((fields & SyncRecord.TEXT) != 0) {
+                writeVarLong(out, record.textStamp);
+                byte[] text = record.text.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, text.length);
+                out.write(text, 0, text.length);
+            }
+            if ((fields & SyncRecord.IMPORTANCE) != 0) {
+                writeVarLong(out, record.importanceStamp);
+            }
+        }
+        byte[] plain = out.toByteArray();
+        byte[] deflated = deflate(plain);
+        return deflated.length < plain.length ? deflated : plain;
+    }
+
+    static SyncMessage decode(byte[] message) throws IOException {
+        if (message.length == 0) {
+            throw new IOException("Empty sync message");
+        }
+        byte[] bytes;
+        if (message[0] == PLAIN) {
+            bytes = message;
+        } else if (message[0] == DEFLATED) {
+            bytes = inflate(message);
+        } else {
+            throw new IOException("Unknown sync message format " + message[0]);
+        }
+        Reader in = new Reader(bytes);
+        long sequence = in.readVarLong();
+        long count = in.readVarLong();
+        // Every record takes at least two bytes, so a larger count cannot be right.
+        if (count < 0 || count > (bytes.length - in.position) / 2) {
+            throw new IOException("Bad record count " + count);
+        }
+        List<SyncRecord> records = new ArrayList<>((int) count);
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            id += in.readVarLong();
+            SyncRecord record = new SyncRecord(id);
+            int flags = in.readByte();
+            int importance = flags >>> IMPORTANCE_SHIFT;
+            if (importance >= Item.ImportanceLevel.values().length) {
+                throw new IOException("Bad importance " + importance);
+            }
+            if ((flags & SyncRecord.REMOVED) != 0) {
+                record.removedStamp = in.readStamp();
+            }
+            if ((flags & SyncRecord.TEXT) != 0) {
+                record.textStamp = in.readStamp();
+                record.text = in.readString();
+            }
+            if ((flags & SyncRecord.IMPORTANCE) != 0) {
+                record.importanceStamp = in.readStamp();
+                record.importance = Item.ImportanceLevel.values()[importance];
+            }
+            records.add(record);
+        }
+        if (in.position != bytes.length) {
+            throw new IOException("Trailing bytes in sync message");
+        }
+        return new SyncMessage(sequence, records);
+    }
+
+    // Deflates everything after the format byte.
+    private static byte[] deflate(byte[] plain) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(plain, 1, plain.length - 1);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length);
+            out.write(DEFLATED);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Inflates everything after the format byte, keeping a PLAIN format byte in front so the
+    // result reads like a plain message.
+    private static byte[] inflate(byte[] message) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(message, 1, message.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(message.length * 4);
+            out.write(PLAIN);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated sync message");
+                }
+                out.write(buffer, 0, length);
+                if (out.size() > MAX_MESSAGE_LENGTH) {
+                    throw new IOException("Sync message too large");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Damaged sync message", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    // Reads a message, throwing an IOException instead of running past its end.
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position = 1; // After the format byte.
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readByte() throws IOException {
+            if (position >= bytes.length) {
+                throw new IOException("Truncated sync message");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Bad number in sync message");
+        }
+
+        // A field that is sent is known, so its stamp is never 0.
+        long readStamp() throws IOException {
+            long stamp = readVarLong();
+            if (stamp == 0) {
+                throw new IOException("Missing stamp in sync message");
+            }
+            return stamp;
+        }
+
+        String readString() throws IOException {
+            long length = readVarLong();
+            if (length < 0 || length > bytes.length - position) {
+                throw new IOException("Bad text length " + length);
+            }
+            String text = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return text;
+        }
+    }
+}
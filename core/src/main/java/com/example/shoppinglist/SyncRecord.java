@@ -0,0 +1,126 @@
+package com.example.shoppinglist;
+
+import java.util.Random;
+
+// The synced state of one item, as kept by SyncClient and SyncServer and sent between them.
+//
+// Every field is a last-writer-wins register: it carries the stamp of the change that set it,
+// and merging keeps the value with the larger stamp. A stamp is a Lamport clock with the
+// replica id of the device in its low bits (see stamp()), so two devices never create the same
+// stamp for different values, and merging gives the same result in any order, on any device.
+// A stamp of 0 means the field is not known (or not sent).
+//
+// A removal wins over every edit, whatever their stamps: once an item has been removed (bought)
+// on one device, an edit made on another device at the same time does not bring it back.
+// The removed item is kept as a "tombstone" holding only its id and removal stamp.
+final class SyncRecord {
+
+    // Bits of a stamp holding the replica id, the Lamport clock is above them.
+    static final int REPLICA_BITS = 20;
+    static final long REPLICA_MASK = (1L << REPLICA_BITS) - 1;
+
+    // The fields of a record, used as bits in masks.
+    static final int TEXT = 1;
+    static final int IMPORTANCE = 1 << 1;
+    static final int REMOVED = 1 << 2;
+
+    final long id;
+
+    String text = "";
+    long textStamp;
+
+    Item.ImportanceLevel importance = Item.ImportanceLevel.NORMAL;
+    long importanceStamp;
+
+    long removedStamp;
+
+    SyncRecord(long id) {
+        this.id = id;
+    }
+
+    // A replica id for a device that was not given one, with some of its low bits set.
+    static long randomReplicaId() {
+        return new Random().nextInt((int) REPLICA_MASK) + 1;
+    }
+
+    static long stamp(long clock, long replicaId) {
+        return clock << REPLICA_BITS | (replicaId & REPLICA_MASK);
+    }
+
+    static long clockOf(long stamp) {
+        return stamp >>> REPLICA_BITS;
+    }
+
+    boolean isRemoved() {
+        return removedStamp != 0;
+    }
+
+    // The fields whose value is known.
+    int knownFields() {
+        if (isRemoved()) {
+            return REMOVED;
+        }
+        return (textStamp != 0 ? TEXT : 0) | (importanceStamp != 0 ? IMPORTANCE : 0);
+    }
+
+    // Largest stamp of any field.
+    long maxStamp() {
+        return Math.max(removedStamp, Math.max(textStamp, importanceStamp));
+    }
+
+    // A copy holding only the given fields, e.g. the ones a peer has not seen yet.
+    SyncRecord select(int fields) {
+        SyncRecord copy = new SyncRecord(id);
+        if ((fields & REMOVED) != 0 && isRemoved()) {
+            copy.removedStamp = removedStamp;
+            return copy;
+        }
+        if ((fields & TEXT) != 0) {
+            copy.text = text;
+            copy.textStamp = textStamp;
+        }
+        if ((fields & IMPORTANCE) != 0) {
+            copy.importance = importance;
+            copy.importanceStamp = importanceStamp;
+        }
+        return copy;
+    }
+
+    // Merges another version of the same item into this one. Returns the fields that took
+    // the value of 'other'. Merging is commutative, associative and idempotent.
+    int merge(SyncRecord other) {
+        if (isRemoved()) {
+            if (other.isRemoved() && other.removedStamp > removedStamp) {
+                removedStamp = other.removedStamp;
+            }
+            return 0;
+        }
+        if (other.isRemoved()) {
+            removedStamp = other.removedStamp;
+            // A tombstone does not need the values any more.
+            text = "";
+            textStamp = 0;
+            importanceStamp = 0;
+            return REMOVED;
+        }
+        int changed = 0;
+        if (wins(other.textStamp, other.text.compareTo(text), textStamp)) {
+            text = other.text;
+            textStamp = other.textStamp;
+            changed |= TEXT;
+        }
+        if (wins(other.importanceStamp, other.importance.compareTo(importance), importanceStamp)) {
+            importance = other.importance;
+            importanceStamp = other.importanceStamp;
+            changed |= IMPORTANCE;
+        }
+        return changed;
+    }
+
+    // Whether a value stamped 'stamp' replaces the current one stamped 'currentStamp'.
+    // Equal stamps can only come from replicas sharing the low bits of their ids; then the
+    // larger value wins, so the result still does not depend on the order of merging.
+    private static boolean wins(long stamp, int valueComparison, long currentStamp) {
+        return stamp > currentStamp || (stamp == currentStamp && stamp != 0 && valueComparison > 0);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.shoppinglist;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// A stand-in for the server that devices sharing a list sync with (see SyncClient).
+//
+// It keeps the merged state of every item and numbers every change it accepts with a growing
+// sequence number, per field. A client sends the last sequence number it has seen, and gets
+// back only the fields that changed after it. Fields the client has just sent itself and that
+// won the merge are left out, so nothing is echoed back.
+//
+// The server runs in-process and is reached through SyncTransport, so the protocol can be
+// tested and benchmarked (bytes sent, merge throughput) without a network. It is thread-safe:
+// exchanges are handled one at a time, like a real server would do per list.
+public class SyncServer implements SyncTransport {
+
+    private static final class Entry {
+        final SyncRecord record;
+        // Sequence numbers of the last change of each field, and of the item as a whole.
+        long textSequence;
+        long importanceSequence;
+        long removedSequence;
+        long sequence;
+
+        Entry(long id) {
+            record = new SyncRecord(id);
+        }
+    }
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    // Item ids by the sequence number of their last change, so the changes a client has not
+    // seen yet are found without looking at every item.
+    private final TreeMap<Long, Long> changes = new TreeMap<>();
+
+    private long sequence;
+    private long bytesReceived;
+    private long bytesSent;
+
+    @Override
+    public synchronized byte[] exchange(byte[] request) throws IOException {
+        SyncMessage message = SyncMessage.decode(request);
+        long seen = message.sequence;
+        if (seen > sequence) {
+            throw new IOException("Client has seen sequence " + seen + ", the server is at " + sequence);
+        }
+        bytesReceived += request.length;
+
+        // The fields of each item that the client already has, since it sent the winning value.
+        Map<Long, Integer> echoed = new HashMap<>();
+        for (SyncRecord record : message.records) {
+            Entry entry = entries.get(record.id);
+            if (entry == null) {
+                entry = new Entry(record.id);
+                entries.put(record.id, entry);
+            }
+            int changed = entry.record.merge(record);
+            if (changed != 0) {
+                sequence++;
+                if ((changed & SyncRecord.TEXT) != 0) {
+                    entry.textSequence = sequence;
+                }
+                if ((changed & SyncRecord.IMPORTANCE) != 0) {
+                    entry.importanceSequence = sequence;
+                }
+                if ((changed & SyncRecord.REMOVED) != 0) {
+                    entry.removedSequence = sequence;
+                }
+                changes.remove(entry.sequence);
+                changes.put(sequence, record.id);
+                entry.sequence = sequence;
+            }
+            echoed.put(record.id, sameFields(entry.record, record));
+        }
+
+        List<SyncRecord> unseen = new ArrayList<>();
+        for (long id : changes.tailMap(seen, false).values()) {
+            Entry entry = entries.get(id);
+            int fields = (entry.textSequence > seen ? SyncRecord.TEXT : 0)
+                    | (entry.importanceSequence > seen ? SyncRecord.IMPORTANCE : 0)
+                    | (entry.removedSequence > seen ? SyncRecord.REMOVED : 0);
+            Integer alreadyThere = echoed.get(id);
+            if (alreadyThere != null) {
+                fields &= ~alreadyThere;
+            }
+            if (fields != 0) {
+                unseen.add(entry.record.select(fields));
+            }
+        }
+        byte[] response = new SyncMessage(sequence, unseen).encode();
+        bytesSent += response.length;
+        return response;
+    }
+
+    // Total size of all requests received, for measuring the protocol.
+    public synchronized long bytesReceived() {
+        return bytesReceived;
+    }
+
+    // Total size of all responses sent, for measuring the protocol.
+    public synchronized long bytesSent() {
+        return bytesSent;
+    }
+
+    // Number of items known to the server, including removed ones.
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // The fields in which 'sent' holds the same value (stamp) as the merged 'record'.
+    private static int sameFields(SyncRecord record, SyncRecord sent) {
+        if (record.isRemoved()) {
+            return sent.isRemoved() ? SyncRecord.REMOVED : 0;
+        }
+        return (sent.textStamp != 0 && sent.textStamp == record.textStamp ? SyncRecord.TEXT : 0)
+                | (sent.importanceStamp != 0 && sent.importanceStamp == record.importanceStamp
+                ? SyncRecord.IMPORTANCE : 0);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.shoppinglist;
+
+import java.io.IOException;
+
+// Carries one sync request of a SyncClient to the server and brings back its answer.
+//
+// The real app would send the bytes over the network; SyncServer implements this interface
+// directly, so the protocol can be tested and benchmarked in-process.
+public interface SyncTransport {
+    byte[] exchange(byte[] request) throws IOException;
+}
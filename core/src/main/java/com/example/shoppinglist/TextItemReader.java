@@ -0,0 +1,97 @@
+package com.example.shoppinglist;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.LongSupplier;
+
+// Reads items written by TextItemWriter (see there for the format), a buffer full of input at
+// a time.
+//
+// It also reads plain lists, e.g. typed or pasted elsewhere: a line without tabs becomes a
+// NORMAL item with that text and a new id. Empty lines are skipped. Lines starting with '#'
+// are comments only in a file that starts with the header of TextItemWriter; in a plain list
+// they are items like any other line ("#2 pencils").
+public class TextItemReader implements ItemReader {
+
+    // Longest line we accept; anything longer means this is no list.
+    static final int MAX_LINE_LENGTH = 1 << 20;
+
+    private final ChannelInput in;
+    private final LongSupplier newIds;
+    private int lineNumber;
+    // Whether the input starts with the header of TextItemWriter.
+    private boolean commentsAllowed;
+
+    // 'newIds' hands out the ids for lines that have none.
+    public TextItemReader(ReadableByteChannel channel, LongSupplier newIds) {
+        in = new ChannelInput(channel);
+        this.newIds = newIds;
+    }
+
+    @Override
+    public Item read() throws IOException {
+        String line;
+        do {
+            line = in.readLine(MAX_LINE_LENGTH);
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+            if (lineNumber == 1 && line.trim().equals(TextItemWriter.HEADER.trim())) {
+                commentsAllowed = true;
+                line = "";
+            }
+        } while (line.trim().isEmpty() || (commentsAllowed && line.startsWith("#")));
+
+        if (line.indexOf('\t') < 0) {
+            return new Item(newIds.getAsLong(), line.trim(), false);
+        }
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 4) {
+            throw new IOException("Line " + lineNumber + ": expected 4 fields, found " + fields.length);
+        }
+        try {
+            String flags = fields[2];
+            Item item = new Item(Long.parseLong(fields[0]), unescape(fields[3]), flags.indexOf('n') >= 0);
+            item.setImportance(Item.ImportanceLevel.valueOf(fields[1]));
+            item.setOptionsExpanded(flags.indexOf('o') >= 0);
+            return item;
+        } catch (IllegalArgumentException e) {
+            // Covers NumberFormatException too.
+            throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static String unescape(String text) {
+        if (text.indexOf('\\') < 0) {
+            return text;
+        }
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char escaped = text.charAt(++i);
+                switch (escaped) {
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    default:
+                        c = escaped;
+                }
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.shoppinglist;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// Writes items as UTF-8 text, one line per item, e.g. to share a list by mail or edit it on a
+// computer. TextItemReader reads it back. Every line holds four fields separated by tabs:
+//
+//   id <TAB> importance <TAB> flags <TAB> text
+//
+// The importance is the name of the Item.ImportanceLevel, the flags are "n" for a new entry
+// and "o" for shown options (or nothing). Tabs, line breaks and backslashes in the text are
+// written as \t, \n, \r and \\. The file starts with the HEADER line; after it, lines starting
+// with '#' are comments.
+public class TextItemWriter implements ItemWriter {
+
+    static final String HEADER = "# Shopping list: id, importance, flags, text\n";
+
+    private final ChannelOutput out;
+    private final StringBuilder line = new StringBuilder();
+
+    public TextItemWriter(WritableByteChannel channel) throws IOException {
+        out = new ChannelOutput(channel);
+        out.write(HEADER.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(Item item) throws IOException {
+        line.setLength(0);
+        line.append(item.getId()).append('\t')
+                .append(item.getImportance().name()).append('\t');
+        if (item.isNewEntry()) {
+            line.append('n');
+        }
+        if (item.isOptionsExpanded()) {
+            line.append('o');
+        }
+        line.append('\t');
+        String text = item.getText();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\t':
+                    line.append("\\t");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+        line.append('\n');
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Flushes and closes the channel.
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // Closes the channel without writing the buffered lines.
+    @Override
+    public void abort() throws IOException {
+        out.abort();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.shoppinglist;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for reading binary list files a page at a time with {@link BinaryItemPages}.
+ */
+public class BinaryItemPagesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadPage_readsTheSameItemsAsTheWholeFile() throws Exception {
+        List<Item> items = BinaryItemReaderTest.randomItems(new Random(11), 1234);
+        File file = write(items);
+
+        try (BinaryItemPages pages = BinaryItemPages.open(FileChannel.open(file.toPath()), 100)) {
+            assertEquals(1234, pages.size());
+            assertEquals(100, pages.pageSize());
+            // Pages read out of order, and from several threads at once.
+            ExecutorService threads = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<List<Item>>> loaded = new ArrayList<>();
+                for (int page = 12; page >= 0; page--) {
+                    int number = page;
+                    loaded.add(threads.submit(() -> pages.loadPage(number)));
+                }
+                List<Item> read = new ArrayList<>();
+                for (int i = loaded.size() - 1; i >= 0; i--) {
+                    read.addAll(loaded.get(i).get());
+                }
+                assertEquals(34, loaded.get(0).get().size());
+                assertEquals(BinaryItemReaderTest.describe(items), BinaryItemReaderTest.describe(read));
+            } finally {
+                threads.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void open_emptyOrDamagedFiles() throws IOException {
+        try (BinaryItemPages pages = BinaryItemPages.open(FileChannel.open(write(new ArrayList<>()).toPath()), 10)) {
+            assertEquals(0, pages.size());
+        }
+
+        // A file cut short is rejected when opened, not when its last page is shown.
+        File file = write(BinaryItemReaderTest.randomItems(new Random(12), 50));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        FileChannel channel = FileChannel.open(file.toPath());
+        try {
+            BinaryItemPages.open(channel, 10);
+            fail("A damaged file was opened");
+        } catch (IOException expected) {
+            assertFalse(channel.isOpen());
+        }
+    }
+
+    private File write(List<Item> items) throws IOException {
+        File file = folder.newFile();
+        ItemFiles.export(items, new BinaryItemWriter(FileChannel.open(file.toPath(), StandardOpenOption.WRITE)));
+        return file;
+    }
+}
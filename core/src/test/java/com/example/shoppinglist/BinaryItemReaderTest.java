@@ -0,0 +1,134 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BinaryItemWriter} and {@link BinaryItemReader}.
+ */
+public class BinaryItemReaderTest {
+
+    @Test
+    public void roundTrip_keepsEverything() throws IOException {
+        List<Item> items = randomItems(new Random(5), 5000);
+        // A text larger than the read buffer, and ids going down as well as up.
+        char[] longText = new char[ChannelInput.BUFFER_SIZE * 2 + 3];
+        Arrays.fill(longText, 'é');
+        items.add(new Item(-42, new String(longText), false));
+        items.add(new Item(Long.MAX_VALUE, "last"));
+
+        byte[] bytes = write(items);
+        // The reader must not depend on how much a single read() returns.
+        assertEquals(describe(items), describe(readAll(new TrickleChannel(bytes, 7))));
+        assertEquals(describe(items), describe(readAll(new TrickleChannel(bytes, 1 << 20))));
+    }
+
+    @Test
+    public void emptyList() throws IOException {
+        assertTrue(readAll(new TrickleChannel(write(new ArrayList<>()), 3)).isEmpty());
+    }
+
+    @Test
+    public void truncatedOrForeignInput_isRejected() throws IOException {
+        byte[] bytes = write(randomItems(new Random(6), 20));
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                readAll(new TrickleChannel(Arrays.copyOf(bytes, length), 5));
+                fail("Accepted " + length + " of " + bytes.length + " bytes");
+            } catch (IOException expected) {
+            }
+        }
+        try {
+            readAll(new TrickleChannel("1\tNORMAL\t\tMilk\n".getBytes("UTF-8"), 64));
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    static List<Item> randomItems(Random random, int count) {
+        String[] texts = {"Milk", "Brot", "Äpfel 🍎", "", "tab\there", "line\nbreak", "back\\slash"};
+        List<Item> items = new ArrayList<>();
+        long id = 1_700_000_000_000L * 1024;
+        for (int i = 0; i < count; i++) {
+            id += random.nextInt(5000);
+            Item item = new Item(id, texts[random.nextInt(texts.length)] + i, random.nextInt(10) == 0);
+            item.setImportance(Item.ImportanceLevel.values()[random.nextInt(3)]);
+            item.setOptionsExpanded(random.nextBoolean());
+            items.add(item);
+        }
+        return items;
+    }
+
+    static List<String> describe(List<Item> items) {
+        List<String> descriptions = new ArrayList<>();
+        for (Item item : items) {
+            descriptions.add(item.getId() + "|" + item.getText() + "|" + item.getImportance()
+                    + "|" + item.isNewEntry() + "|" + item.isOptionsExpanded());
+        }
+        return descriptions;
+    }
+
+    private static byte[] write(List<Item> items) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ItemWriter writer = new BinaryItemWriter(Channels.newChannel(out))) {
+            for (Item item : items) {
+                writer.write(item);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Item> readAll(ReadableByteChannel channel) throws IOException {
+        List<Item> items = new ArrayList<>();
+        try (ItemReader reader = new BinaryItemReader(channel)) {
+            for (Item item = reader.read(); item != null; item = reader.read()) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    // Hands out at most 'step' bytes per read, like a slow network stream.
+    static class TrickleChannel implements ReadableByteChannel {
+        private final ByteBuffer bytes;
+        private final int step;
+
+        TrickleChannel(byte[] bytes, int step) {
+            this.bytes = ByteBuffer.wrap(bytes);
+            this.step = step;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) {
+            if (!bytes.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(step, Math.min(bytes.remaining(), destination.remaining()));
+            ByteBuffer slice = bytes.slice();
+            slice.limit(count);
+            destination.put(slice);
+            bytes.position(bytes.position() + count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
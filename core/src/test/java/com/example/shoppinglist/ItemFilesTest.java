@@ -0,0 +1,106 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for exporting and importing lists with {@link ItemFiles}.
+ */
+public class ItemFilesTest {
+
+    @Test
+    public void exportThenImport_addsTheItemsInChunks() throws IOException {
+        ItemListModel source = new ItemListModel();
+        source.setItems(BinaryItemReaderTest.randomItems(new Random(9), 2500));
+        source.add(new Item(1, ""));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int exported = ItemFiles.export(source.getSnapshot(), new BinaryItemWriter(Channels.newChannel(out)));
+
+        ItemListModel target = new ItemListModel();
+        target.add(new Item(5, ""));
+        List<List<Item>> published = new ArrayList<>();
+        target.setListener(published::add);
+        List<Integer> chunkSizes = new ArrayList<>();
+        AtomicLong ids = new AtomicLong(100);
+        int imported = ItemFiles.importInChunks(
+                new BinaryItemReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray()))),
+                ids::getAndIncrement, 1000, chunk -> {
+                    chunkSizes.add(chunk.size());
+                    target.addAll(chunk);
+                });
+
+        // Empty texts are dropped, the rest arrives in chunks, one published list per chunk.
+        int nonEmpty = 0;
+        for (Item item : source.getSnapshot()) {
+            if (!item.getText().isEmpty()) {
+                nonEmpty++;
+            }
+        }
+        assertEquals(2500, exported);
+        assertEquals(nonEmpty, imported);
+        assertEquals(Arrays.asList(1000, 1000, nonEmpty - 2000), chunkSizes);
+        assertEquals(3, published.size());
+
+        List<Item> result = target.getSnapshot();
+        assertEquals(nonEmpty + 1, result.size());
+        // The blank row of the target stays last, all imported items are placed with new ids.
+        assertEquals(5, result.get(result.size() - 1).getId());
+        for (Item item : result.subList(0, nonEmpty)) {
+            assertTrue(item.getId() >= 100 && item.getId() < 100 + nonEmpty);
+            assertFalse(item.isNewEntry());
+            assertFalse(item.isOptionsExpanded());
+        }
+    }
+
+    @Test
+    public void export_failingHalfway_leavesAFileThatIsRejected() throws IOException {
+        List<Item> items = BinaryItemReaderTest.randomItems(new Random(10), 3000);
+        // Fails in the middle of the export, e.g. like a list that cannot be read any further.
+        List<Item> failing = new AbstractList<Item>() {
+            @Override
+            public Item get(int index) {
+                if (index == 1500) {
+                    throw new IllegalStateException("Failing on purpose");
+                }
+                return items.get(index);
+            }
+
+            @Override
+            public int size() {
+                return items.size();
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        try {
+            ItemFiles.export(failing, new BinaryItemWriter(channel));
+            fail("The export did not fail");
+        } catch (IllegalStateException expected) {
+            assertFalse(channel.isOpen());
+        }
+
+        // Without its end marker, the file is not taken for a complete list of 1500 items.
+        try {
+            ItemFiles.importInChunks(
+                    new BinaryItemReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray()))),
+                    new AtomicLong()::incrementAndGet, 1000, chunk -> { });
+            fail("An incomplete file was imported");
+        } catch (IOException expected) {
+            // Rejected.
+        }
+    }
+}
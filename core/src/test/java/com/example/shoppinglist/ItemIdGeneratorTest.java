@@ -0,0 +1,107 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ItemIdGenerator}.
+ */
+public class ItemIdGeneratorTest {
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    @Test
+    public void sameMillisecond_givesDifferentIds() {
+        ItemIdGenerator generator = new ItemIdGenerator(1, () -> 1000L);
+        long first = generator.nextId();
+        long second = generator.nextId();
+        assertTrue(second > first);
+    }
+
+    @Test
+    public void sameMillisecondOnTwoDevices_givesDifferentIds() {
+        ItemIdGenerator phone = new ItemIdGenerator(1, () -> 1000L);
+        ItemIdGenerator tablet = new ItemIdGenerator(2, () -> 1000L);
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(seen.add(phone.nextId()));
+            assertTrue(seen.add(tablet.nextId()));
+        }
+        // Only the low bits of the replica id are used, and ids stay positive.
+        long id = new ItemIdGenerator(-1, () -> 1000L).nextId();
+        assertEquals(SyncRecord.REPLICA_MASK, id & SyncRecord.REPLICA_MASK);
+        assertTrue(id > 0);
+    }
+
+    @Test
+    public void clockGoingBackwards_keepsIncreasing() {
+        AtomicLong time = new AtomicLong(5000);
+        ItemIdGenerator generator = new ItemIdGenerator(1, time::get);
+        long before = generator.nextId();
+        time.set(10);
+        assertTrue(generator.nextId() > before);
+    }
+
+    @Test
+    public void advancePast_coversIdsFromAnEarlierRun() {
+        // A restored list may contain ids from a clock that was ahead of ours.
+        ItemIdGenerator generator = new ItemIdGenerator(1, () -> 10L);
+        long restoredId = 999_999_999L;
+        generator.advancePast(restoredId);
+        assertTrue(generator.nextId() > restoredId);
+
+        // Older, smaller ids do not move the generator back.
+        long last = generator.nextId();
+        generator.advancePast(5);
+        assertTrue(generator.nextId() > last);
+    }
+
+    @Test
+    public void manyThreads_neverCollide() throws Exception {
+        ItemIdGenerator generator = new ItemIdGenerator();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long[] ids = new long[IDS_PER_THREAD];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            Set<Long> seen = new HashSet<>();
+            for (Future<long[]> result : results) {
+                long[] ids = result.get(30, TimeUnit.SECONDS);
+                for (int i = 0; i < ids.length; i++) {
+                    // Every thread sees strictly increasing ids ...
+                    if (i > 0) {
+                        assertTrue(ids[i] > ids[i - 1]);
+                    }
+                    // ... and no id is ever handed out twice.
+                    assertTrue("Duplicate id " + ids[i], seen.add(ids[i]));
+                }
+            }
+            assertEquals(THREADS * IDS_PER_THREAD, seen.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
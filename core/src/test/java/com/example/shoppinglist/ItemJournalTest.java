@@ -0,0 +1,144 @@
+package com.example.shoppinglist;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ItemJournal}, checking that a list written through the journal
+ * comes back unchanged after a restart.
+ */
+public class ItemJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restore_replaysAllChanges() throws Exception {
+        File dir = folder.getRoot();
+        ItemListModel model = openModel(dir);
+        model.add(new Item(1, ""));
+        model.setText(1, "Milk");
+        model.setImportance(1, Item.ImportanceLevel.NORMAL);
+        model.add(new Item(2, ""));
+        model.setText(2, "Bread");
+        model.setImportance(2, Item.ImportanceLevel.IMPORTANT);
+        model.add(new Item(3, "Eggs"));
+        model.remove(3);
+        model.add(new Item(4, ""));
+        List<String> expected = describe(model.getSnapshot());
+        closeJournal(model);
+
+        assertEquals(expected, describe(openModel(dir).getSnapshot()));
+        assertEquals("2:Bread:IMPORTANT:false", expected.get(0));
+    }
+
+    @Test
+    public void restore_afterCompaction() throws Exception {
+        File dir = folder.getRoot();
+        ItemListModel model = openModel(dir);
+        for (int i = 0; i < ItemJournal.COMPACT_THRESHOLD + 10; i++) {
+            model.add(new Item(i, "item " + i, false));
+        }
+        model.setImportance(5, Item.ImportanceLevel.UNIMPORTANT);
+        List<String> expected = describe(model.getSnapshot());
+        closeJournal(model);
+
+        assertTrue(new File(dir, ItemJournal.SNAPSHOT_FILE).exists());
+        assertEquals(expected, describe(openModel(dir).getSnapshot()));
+    }
+
+    @Test
+    public void restore_ignoresDamagedTail() throws Exception {
+        File dir = folder.getRoot();
+        ItemListModel model = openModel(dir);
+        model.add(new Item(1, "Apples", false));
+        model.add(new Item(2, "Pears", false));
+        List<String> expected = describe(model.getSnapshot());
+        closeJournal(model);
+
+        // Simulate a record that was only partly written when the app died.
+        try (FileOutputStream out = new FileOutputStream(new File(dir, ItemJournal.JOURNAL_FILE), true)) {
+            out.write(new byte[]{0, 0, 0, 40, 1, 2, 3});
+        }
+
+        ItemListModel restored = openModel(dir);
+        assertEquals(expected, describe(restored.getSnapshot()));
+
+        // New records go right after the last good one and survive the next restart.
+        restored.add(new Item(3, "Plums", false));
+        expected = describe(restored.getSnapshot());
+        closeJournal(restored);
+        assertEquals(expected, describe(openModel(dir).getSnapshot()));
+    }
+
+    @Test
+    public void firstScreen_holdsTheTopOfTheList() throws Exception {
+        File dir = folder.getRoot();
+        assertTrue(new ItemJournal(dir, ArrayList::new).readFirstScreen().isEmpty());
+
+        ItemListModel model = openModel(dir);
+        for (int i = 0; i < ItemJournal.FIRST_SCREEN_SIZE * 3; i++) {
+            model.add(new Item(i, "item " + i, false));
+        }
+        model.setImportance(70, Item.ImportanceLevel.IMPORTANT);
+        List<String> expected = describe(model.getSnapshot()).subList(0, ItemJournal.FIRST_SCREEN_SIZE);
+        closeJournal(model);
+
+        List<String> firstScreen = describe(new ItemJournal(dir, ArrayList::new).readFirstScreen());
+        assertEquals(expected, firstScreen);
+        assertEquals("70:item 70:IMPORTANT:false", firstScreen.get(0));
+    }
+
+    @Test
+    public void firstScreen_ignoresDamagedFile() throws Exception {
+        File dir = folder.getRoot();
+        ItemListModel model = openModel(dir);
+        model.add(new Item(1, "Apples", false));
+        closeJournal(model);
+
+        File file = new File(dir, ItemJournal.FIRST_SCREEN_FILE);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[bytes.length - 3] ^= 1;
+        Files.write(file.toPath(), bytes);
+
+        assertTrue(new ItemJournal(dir, ArrayList::new).readFirstScreen().isEmpty());
+        // The list itself is not affected.
+        assertEquals(1, openModel(dir).size());
+    }
+
+    private final List<ItemJournal> journals = new ArrayList<>();
+
+    private ItemListModel openModel(File dir) throws IOException {
+        ItemListModel model = new ItemListModel();
+        ItemJournal journal = new ItemJournal(dir, model::getSnapshot);
+        model.setItems(journal.restore());
+        model.addChangeListener(journal);
+        journals.add(journal);
+        return model;
+    }
+
+    private void closeJournal(ItemListModel model) throws Exception {
+        ItemJournal journal = journals.get(journals.size() - 1);
+        model.removeChangeListener(journal);
+        journal.close();
+        assertTrue(journal.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static List<String> describe(List<Item> items) {
+        List<String> result = new ArrayList<>();
+        for (Item item : items) {
+            result.add(item.getId() + ":" + item.getText() + ":" + item.getImportance() + ":" + item.isNewEntry());
+        }
+        return result;
+    }
+}
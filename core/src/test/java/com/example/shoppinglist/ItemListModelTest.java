@@ -0,0 +1,228 @@
+package com.example.shoppinglist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the display order, bulk operations and id lookups of {@link ItemListModel}.
+ */
+public class ItemListModelTest {
+    private ItemListModel model;
+    private final List<List<Item>> published = new ArrayList<>();
+    private final List<String> changes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        model = new ItemListModel();
+        model.setItems(Arrays.asList(
+                placed(1, "Milk", Item.ImportanceLevel.IMPORTANT),
+                placed(2, "Bread", Item.ImportanceLevel.NORMAL),
+                placed(3, "Candy", Item.ImportanceLevel.UNIMPORTANT),
+                placed(4, "Chips", Item.ImportanceLevel.UNIMPORTANT),
+                new Item(5, "")));
+        model.setListener(published::add);
+        model.addChangeListener(new ItemListModel.ChangeListener() {
+            @Override
+            public void onItemAdded(Item item) {
+                changes.add("add " + item.getId());
+            }
+
+            @Override
+            public void onItemRemoved(long id) {
+                changes.add("remove " + id);
+            }
+
+            @Override
+            public void onItemTextChanged(long id, String text) {
+                changes.add("text " + id);
+            }
+
+            @Override
+            public void onItemImportanceChanged(long id, Item.ImportanceLevel importance) {
+                changes.add("importance " + id);
+            }
+        });
+    }
+
+    @Test
+    public void blankRow_staysLast() {
+        model.add(placed(6, "Eggs", Item.ImportanceLevel.UNIMPORTANT));
+        model.add(placed(7, "Salt", Item.ImportanceLevel.IMPORTANT));
+        model.setText(5, "Butter");
+        assertEquals(Arrays.asList(1L, 7L, 2L, 3L, 4L, 6L, 5L), ids(model.getSnapshot()));
+
+        // Placing the blank row moves it into its bucket, a new blank row goes last again.
+        model.setImportance(5, Item.ImportanceLevel.NORMAL);
+        model.add(new Item(8, ""));
+        assertEquals(Arrays.asList(1L, 7L, 2L, 5L, 3L, 4L, 6L, 8L), ids(model.getSnapshot()));
+        assertTrue(model.get(model.size() - 1).isNewEntry());
+    }
+
+    @Test
+    public void add_keepsTheOrderInsideABucket() {
+        model.add(placed(6, "Eggs", Item.ImportanceLevel.UNIMPORTANT));
+        model.add(placed(7, "Jam", Item.ImportanceLevel.NORMAL));
+        model.add(placed(8, "Tea", Item.ImportanceLevel.UNIMPORTANT));
+
+        // Every item comes after the ones that entered its bucket before.
+        assertEquals(Arrays.asList(1L, 2L, 7L, 3L, 4L, 6L, 8L, 5L), ids(model.getSnapshot()));
+    }
+
+    @Test
+    public void setImportance_movesTheItemToTheEndOfItsBucket() {
+        model.add(placed(6, "Eggs", Item.ImportanceLevel.NORMAL));
+        model.setImportance(3, Item.ImportanceLevel.NORMAL);
+        assertEquals(Arrays.asList(1L, 2L, 6L, 3L, 4L, 5L), ids(model.getSnapshot()));
+        assertEquals(Item.ImportanceLevel.NORMAL, model.get(3).getImportance());
+
+        model.setImportance(2, Item.ImportanceLevel.UNIMPORTANT);
+        assertEquals(Arrays.asList(1L, 6L, 3L, 4L, 2L, 5L), ids(model.getSnapshot()));
+
+        // An item already in the bucket stays where it is.
+        model.setImportance(6, Item.ImportanceLevel.NORMAL);
+        assertEquals(Arrays.asList(1L, 6L, 3L, 4L, 2L, 5L), ids(model.getSnapshot()));
+    }
+
+    @Test
+    public void remove_keepsTheBucketsRight() {
+        model.remove(1);
+        model.remove(3);
+        model.remove(5);
+        assertEquals(Arrays.asList(2L, 4L), ids(model.getSnapshot()));
+
+        // Items added afterwards still land at the end of their bucket.
+        model.add(placed(6, "Salt", Item.ImportanceLevel.IMPORTANT));
+        model.add(placed(7, "Jam", Item.ImportanceLevel.NORMAL));
+        model.add(placed(8, "Tea", Item.ImportanceLevel.UNIMPORTANT));
+        model.add(new Item(9, ""));
+        assertEquals(Arrays.asList(6L, 2L, 7L, 4L, 8L, 9L), ids(model.getSnapshot()));
+
+        // Removing an unknown id changes nothing.
+        model.remove(42);
+        assertEquals(Arrays.asList(6L, 2L, 7L, 4L, 8L, 9L), ids(model.getSnapshot()));
+    }
+
+    @Test
+    public void addAll_placesItemsAndPublishesOnce() {
+        model.addAll(Arrays.asList(
+                placed(6, "Eggs", Item.ImportanceLevel.NORMAL),
+                placed(7, "Jam", Item.ImportanceLevel.UNIMPORTANT),
+                new Item(8, ""),
+                placed(9, "Salt", Item.ImportanceLevel.IMPORTANT)));
+
+        assertEquals(Arrays.asList(1L, 9L, 2L, 6L, 3L, 4L, 7L, 5L, 8L), ids(model.getSnapshot()));
+        assertEquals(1, published.size());
+        assertEquals(Arrays.asList("add 6", "add 7", "add 8", "add 9"), changes);
+
+        // The buckets are still right for the single-item operations.
+        model.add(placed(10, "Tea", Item.ImportanceLevel.NORMAL));
+        assertEquals(Arrays.asList(1L, 9L, 2L, 6L, 10L, 3L, 4L, 7L, 5L, 8L), ids(model.getSnapshot()));
+    }
+
+    @Test
+    public void removeAll_clearsOneBucket() {
+        model.removeAll(Item.ImportanceLevel.UNIMPORTANT);
+
+        assertEquals(Arrays.asList(1L, 2L, 5L), ids(model.getSnapshot()));
+        assertEquals(1, published.size());
+        assertEquals(Arrays.asList("remove 3", "remove 4"), changes);
+
+        model.removeAll(Item.ImportanceLevel.UNIMPORTANT);
+        assertEquals(1, published.size());
+    }
+
+    @Test
+    public void setImportance_movesSelectionTogether() {
+        LongHashSet selection = new LongHashSet();
+        selection.add(4);
+        selection.add(1);
+        selection.add(2);
+        model.setImportance(selection, Item.ImportanceLevel.NORMAL);
+
+        // Bread already was NORMAL and stays put, Milk and Chips follow it in list order.
+        assertEquals(Arrays.asList(2L, 1L, 4L, 3L, 5L), ids(model.getSnapshot()));
+        assertEquals(1, published.size());
+        assertEquals(Arrays.asList("importance 1", "importance 2", "importance 4"), changes);
+
+        model.setImportance(3, Item.ImportanceLevel.IMPORTANT);
+        assertEquals(Arrays.asList(3L, 2L, 1L, 4L, 5L), ids(model.getSnapshot()));
+    }
+
+    @Test
+    public void batch_publishesOnceAtTheEnd() {
+        List<Item> before = model.getSnapshot();
+        model.batch(() -> {
+            model.setText(5, "Butter");
+            model.setImportance(5, Item.ImportanceLevel.IMPORTANT);
+            model.batch(() -> model.add(new Item(6, "")));
+            assertSame(before, model.getSnapshot());
+            assertTrue(changes.isEmpty());
+        });
+
+        assertEquals(Arrays.asList(1L, 5L, 2L, 3L, 4L, 6L), ids(model.getSnapshot()));
+        assertEquals(1, published.size());
+        assertEquals(Arrays.asList("text 5", "importance 5", "add 6"), changes);
+    }
+
+    @Test
+    public void indexOf_followsEveryKindOfChange() {
+        Random random = new Random(3);
+        long nextId = 6;
+        Item.ImportanceLevel[] levels = Item.ImportanceLevel.values();
+        for (int step = 0; step < 2000; step++) {
+            List<Item> snapshot = model.getSnapshot();
+            long id = snapshot.isEmpty() ? 0 : snapshot.get(random.nextInt(snapshot.size())).getId();
+            Item.ImportanceLevel level = levels[random.nextInt(levels.length)];
+            switch (random.nextInt(6)) {
+                case 0:
+                    model.add(random.nextBoolean() ? new Item(nextId++, "") : placed(nextId++, "x", level));
+                    break;
+                case 1:
+                    model.remove(id);
+                    break;
+                case 2:
+                    model.setImportance(id, level);
+                    break;
+                case 3:
+                    model.addAll(Arrays.asList(placed(nextId++, "a", level), new Item(nextId++, "")));
+                    break;
+                case 4:
+                    LongHashSet selection = new LongHashSet();
+                    selection.add(id);
+                    selection.add(nextId - 1);
+                    model.setImportance(selection, level);
+                    break;
+                default:
+                    if (random.nextInt(20) == 0) {
+                        model.removeAll(level);
+                    }
+            }
+            List<Long> ids = ids(model.getSnapshot());
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(i, model.indexOf(ids.get(i)));
+            }
+            assertEquals(-1, model.indexOf(nextId));
+        }
+    }
+
+    private static Item placed(long id, String text, Item.ImportanceLevel importance) {
+        Item item = new Item(id, text, false);
+        item.setImportance(importance);
+        return item;
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        List<Long> ids = new ArrayList<>();
+        for (Item item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.shoppinglist;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Concurrency stress tests for {@link ItemListStore}: readers on several threads must always see
+ * complete, consistent snapshots while the list is changed.
+ */
+public class ItemListStoreTest {
+    private final ItemListStore store = new ItemListStore();
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void readers_alwaysSeeConsistentSnapshots() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (writing.get()) {
+                        checkConsistent(store.getSnapshot());
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        Random random = new Random(7);
+        Item.ImportanceLevel[] levels = Item.ImportanceLevel.values();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long id = i;
+            int operation = random.nextInt(10);
+            if (operation < 4 || ids.size() < 10) {
+                ids.add(id);
+                store.execute(model -> model.add(new Item(id, "item " + id, id % 3 == 0)));
+            } else if (operation < 6) {
+                long removed = ids.remove(random.nextInt(ids.size()));
+                store.execute(model -> model.remove(removed));
+            } else if (operation < 8) {
+                long moved = ids.get(random.nextInt(ids.size()));
+                Item.ImportanceLevel importance = levels[random.nextInt(levels.length)];
+                store.execute(model -> model.setImportance(moved, importance));
+            } else {
+                long edited = ids.get(random.nextInt(ids.size()));
+                store.execute(model -> model.setText(edited, "edited " + id));
+            }
+        }
+        store.awaitPending();
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.peek());
+        }
+        assertEquals(new HashSet<>(ids), idsOf(store.getSnapshot()));
+    }
+
+    @Test
+    public void changesFromManyThreads_areAppliedInOrder() throws Exception {
+        int threads = 8;
+        int perThread = 1000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    long id = thread * perThread + i;
+                    store.execute(model -> model.add(new Item(id, "item " + id, false)));
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        store.awaitPending();
+
+        List<Item> snapshot = store.getSnapshot();
+        assertEquals(threads * perThread, snapshot.size());
+        // Every thread's items appear in the order that thread added them.
+        Map<Long, Long> lastIdPerThread = new HashMap<>();
+        for (Item item : snapshot) {
+            long thread = item.getId() / perThread;
+            Long last = lastIdPerThread.put(thread, item.getId());
+            assertTrue(last == null || last < item.getId());
+        }
+    }
+
+    @Test
+    public void snapshot_staysTheSameWhileEditing() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            long id = i;
+            store.execute(model -> model.add(new Item(id, "item " + id, false)));
+        }
+        store.awaitPending();
+        List<Item> snapshot = store.getSnapshot();
+        List<Item> copy = new ArrayList<>(snapshot);
+
+        store.execute(model -> {
+            model.remove(5);
+            model.setText(6, "changed");
+            model.setImportance(7, Item.ImportanceLevel.IMPORTANT);
+        });
+        store.awaitPending();
+
+        assertEquals(copy, snapshot);
+        assertNotEquals(copy, store.getSnapshot());
+    }
+
+    // Checks the layout ItemListModel promises: placed items grouped by importance, new entries
+    // last, every id once, and get() agreeing with iteration.
+    private static void checkConsistent(List<Item> snapshot) {
+        Set<Long> seen = new HashSet<>();
+        int lastImportance = 0;
+        boolean inTail = false;
+        Iterator<Item> iterator = snapshot.iterator();
+        for (int i = 0; iterator.hasNext(); i++) {
+            Item item = iterator.next();
+            assertTrue("duplicate id " + item.getId(), seen.add(item.getId()));
+            if (i % 97 == 0) {
+                assertSame(item, snapshot.get(i));
+            }
+            if (item.isNewEntry()) {
+                inTail = true;
+            } else {
+                assertFalse("placed item after a new entry", inTail);
+                assertTrue("importance out of order", item.getImportance().ordinal() >= lastImportance);
+                lastImportance = item.getImportance().ordinal();
+            }
+        }
+        assertEquals(snapshot.size(), seen.size());
+    }
+
+    private static Set<Long> idsOf(List<Item> items) {
+        Set<Long> ids = new HashSet<>();
+        for (Item item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+}
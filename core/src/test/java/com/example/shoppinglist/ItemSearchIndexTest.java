@@ -0,0 +1,119 @@
+package com.example.shoppinglist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ItemSearchIndex} and {@link FilteredItemList}.
+ */
+public class ItemSearchIndexTest {
+    private ItemListModel model;
+    private ItemSearchIndex index;
+
+    @Before
+    public void setUp() {
+        model = new ItemListModel();
+        index = new ItemSearchIndex();
+        model.addChangeListener(index);
+        model.add(new Item(1, "Crème fraîche", false));
+        model.add(new Item(2, "Bread", false));
+        model.add(new Item(3, "CREAM cheese", false));
+    }
+
+    @Test
+    public void search_ignoresCaseAndAccents() {
+        assertEquals(ids(1, 3), found("cre"));
+        assertEquals(ids(1), found("CREME"));
+        assertEquals(ids(1), found("fraiche"));
+        assertEquals(ids(3), found("m ch"));
+        assertEquals(ids(), found("milk"));
+    }
+
+    @Test
+    public void search_shortQueries() {
+        assertEquals(ids(1, 2, 3), found("e"));
+        assertEquals(ids(2), found("br"));
+    }
+
+    @Test
+    public void search_longQueryNeedsContiguousMatch() {
+        // Both trigrams "che" and "hee" occur in item 3, but "cheese" only as a whole.
+        model.add(new Item(4, "cheap heels", false));
+        assertEquals(ids(3), found("cheese"));
+    }
+
+    @Test
+    public void index_followsTextChangesAndRemovals() {
+        model.setText(2, "Brioche");
+        assertEquals(ids(2), found("brioche"));
+        assertEquals(ids(), found("bread"));
+
+        model.remove(1);
+        assertEquals(ids(3), found("cre"));
+
+        model.add(new Item(5, ""));
+        model.setText(5, "Crêpes");
+        assertEquals(ids(3, 5), found("cre"));
+    }
+
+    @Test
+    public void rebuild_replacesEverything() {
+        index.rebuild(Arrays.asList(new Item(7, "Apples", false)));
+        assertEquals(ids(7), found("apple"));
+        assertEquals(ids(), found("bread"));
+    }
+
+    @Test
+    public void filteredList_keepsOrderWithoutCopying() {
+        List<Item> snapshot = model.getSnapshot();
+        FilteredItemList filtered = new FilteredItemList(snapshot, index.search("cre"), model::indexOf);
+        assertEquals(2, filtered.size());
+        assertSame(snapshot.get(0), filtered.get(0));
+        assertSame(snapshot.get(2), filtered.get(1));
+    }
+
+    @Test
+    public void filteredList_looksUpFewMatchesInALongList() {
+        Item.ImportanceLevel[] levels = Item.ImportanceLevel.values();
+        for (int i = 0; i < 3000; i++) {
+            Item item = new Item(100 + i, "item " + i, false);
+            item.setImportance(levels[i % levels.length]);
+            model.add(item);
+        }
+        List<Item> snapshot = model.getSnapshot();
+        // "item 12", "item 120" to "item 129" and "item 1200" to "item 1299", spread over all
+        // three sections.
+        FilteredItemList filtered = new FilteredItemList(snapshot, index.search("item 12"), model::indexOf);
+
+        List<Item> expected = new ArrayList<>();
+        for (Item item : snapshot) {
+            if (item.getText().contains("item 12")) {
+                expected.add(item);
+            }
+        }
+        assertEquals(111, filtered.size());
+        assertEquals(expected, new ArrayList<>(filtered));
+    }
+
+    private Set<Long> found(String query) {
+        Set<Long> result = new HashSet<>();
+        index.search(query).forEach(result::add);
+        return result;
+    }
+
+    private static Set<Long> ids(long... ids) {
+        Set<Long> result = new HashSet<>();
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LongHashSet}, compared against a plain {@link HashSet}.
+ */
+public class LongHashSetTest {
+    @Test
+    public void randomOperations_matchHashSet() {
+        Random random = new Random(42);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            // A small value range makes collisions, re-adds and removals of present values common.
+            long value = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        for (long value = -1000; value < 1000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+
+        Set<Long> iterated = new HashSet<>();
+        set.forEach(iterated::add);
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void clear_removesEverything() {
+        LongHashSet set = new LongHashSet();
+        set.add(0);
+        set.add(7);
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(7));
+    }
+}
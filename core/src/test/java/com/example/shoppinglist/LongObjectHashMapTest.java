@@ -0,0 +1,46 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LongObjectHashMap}, compared against a plain {@link HashMap}.
+ */
+public class LongObjectHashMapTest {
+    @Test
+    public void randomOperations_matchHashMap() {
+        Random random = new Random(43);
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // A small key range makes collisions, overwrites and removals of present keys common.
+            long key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                expected.put(key, value);
+                map.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = -1000; key < 1000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        Set<Long> iterated = new HashSet<>();
+        map.forEachKey(iterated::add);
+        assertEquals(expected.keySet(), iterated);
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(0));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the window of pages kept by {@link PagedItemList}.
+ */
+public class PagedItemListTest {
+
+    @Test
+    public void get_loadsMissingPagesAndReportsThem() {
+        FakeSource source = new FakeSource(95, 10);
+        Queue<Runnable> loader = new ArrayDeque<>();
+        PagedItemList list = new PagedItemList(source, 4, 1, loader::add, Runnable::run);
+        List<String> reported = new ArrayList<>();
+        list.setListener((start, count) -> reported.add(start + "+" + count));
+
+        assertEquals(95, list.size());
+        assertNull(list.get(93));
+        assertNull(list.get(94));
+        // Asked twice, loaded once.
+        assertEquals(1, loader.size());
+        runAll(loader);
+
+        assertEquals(Arrays.asList("90+5"), reported);
+        assertEquals(93, list.get(93).getId());
+        assertEquals(Arrays.asList(9), source.loaded);
+    }
+
+    @Test
+    public void setVisibleRange_loadsVisibleFirstAndKeepsAtMostMaxPages() {
+        FakeSource source = new FakeSource(1000, 10);
+        Queue<Runnable> loader = new ArrayDeque<>();
+        PagedItemList list = new PagedItemList(source, 6, 2, loader::add, Runnable::run);
+
+        list.setVisibleRange(15, 25);
+        runAll(loader);
+        // The visible pages, then the nearest ones around them.
+        assertEquals(Arrays.asList(1, 2, 3, 0, 4), source.loaded);
+        assertEquals(5, list.loadedPages());
+
+        // Scrolling down: the pages far above are dropped once there are more than 6.
+        for (int first = 25; first < 600; first += 7) {
+            list.setVisibleRange(first, first + 10);
+            runAll(loader);
+            assertTrue(list.loadedPages() <= 6);
+            for (int row = first; row <= first + 10; row++) {
+                assertEquals(row, list.get(row).getId());
+            }
+        }
+        assertNull(list.get(15));
+    }
+
+    @Test
+    public void failedAndClosed_loadsAreIgnored() throws IOException {
+        FakeSource source = new FakeSource(100, 10);
+        source.failing = true;
+        Queue<Runnable> loader = new ArrayDeque<>();
+        PagedItemList list = new PagedItemList(source, 4, 1, loader::add, Runnable::run);
+        List<Integer> reported = new ArrayList<>();
+        list.setListener((start, count) -> reported.add(start));
+
+        assertNull(list.get(5));
+        runAll(loader);
+        assertTrue(reported.isEmpty());
+
+        // Asked for again, the page is read again.
+        source.failing = false;
+        assertNull(list.get(5));
+        assertNull(list.get(55));
+        list.close();
+        runAll(loader);
+        assertTrue(reported.isEmpty());
+        assertEquals(0, list.loadedPages());
+        assertTrue(source.closed);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsTooFewPagesForThePrefetch() {
+        new PagedItemList(new FakeSource(100, 10), 3, 1, Runnable::run, Runnable::run);
+    }
+
+    private static void runAll(Queue<Runnable> tasks) {
+        for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+            task.run();
+        }
+    }
+
+    // Items numbered by their position.
+    private static class FakeSource implements ItemPageSource {
+        private final int size;
+        private final int pageSize;
+        final List<Integer> loaded = new ArrayList<>();
+        boolean failing;
+        boolean closed;
+
+        FakeSource(int size, int pageSize) {
+            this.size = size;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int pageSize() {
+            return pageSize;
+        }
+
+        @Override
+        public List<Item> loadPage(int page) throws IOException {
+            if (failing) {
+                throw new IOException("Failing on purpose");
+            }
+            loaded.add(page);
+            List<Item> items = new ArrayList<>();
+            for (int i = page * pageSize; i < Math.min(size, (page + 1) * pageSize); i++) {
+                items.add(new Item(i, "Item " + i));
+            }
+            return items;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
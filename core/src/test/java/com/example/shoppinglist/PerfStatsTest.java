@@ -0,0 +1,131 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link PerfStats} and its {@link Histogram}: bucket bounds, percentiles, recording
+ * from several threads, and the reports.
+ */
+public class PerfStatsTest {
+
+    @Test
+    public void buckets_coverEveryValueWithinAQuarter() {
+        Random random = new Random(16);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(value + " above its bucket", value <= Histogram.upperBound(bucket));
+            if (bucket > 0) {
+                assertTrue(value + " below its bucket", value > Histogram.upperBound(bucket - 1));
+            }
+            long width = Histogram.upperBound(bucket) - (bucket == 0 ? -1 : Histogram.upperBound(bucket - 1));
+            assertTrue("bucket of " + value + " too wide", width <= Math.max(1, value / 4 + 1));
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentiles_roundUpToTheirBucket() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(500_500, histogram.sum());
+        assertEquals(1000, histogram.max());
+        assertEquals(500.5, histogram.mean(), 1e-9);
+        assertBetween(500, 500 * 5 / 4, histogram.percentile(0.5));
+        assertBetween(900, 900 * 5 / 4, histogram.percentile(0.9));
+        assertBetween(990, 1000, histogram.percentile(0.99));
+        assertEquals(1000, histogram.percentile(1));
+    }
+
+    @Test
+    public void emptyHistogram_reportsZeros() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.percentile(0.5));
+        assertEquals(0, histogram.mean(), 0);
+        histogram.record(-5);
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.max());
+    }
+
+    @Test
+    public void recording_fromSeveralThreads_losesNothing() throws Exception {
+        Histogram histogram = new Histogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i % 1000 + offset);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.count());
+        assertEquals(4 * 100 * 499_500L + 100_000L * (0 + 1 + 2 + 3), histogram.sum());
+        assertEquals(1002, histogram.max());
+    }
+
+    @Test
+    public void reports_listEverythingByName() {
+        PerfStats stats = new PerfStats();
+        stats.counter("adapter.range_inserts").addAndGet(3);
+        stats.histogram("list.change_ns").record(100);
+        stats.histogram("list.change_ns").record(300);
+        assertSame(stats.counter("adapter.range_inserts"), stats.counter("adapter.range_inserts"));
+
+        String text = stats.toText();
+        assertTrue(text, text.matches("(?s)adapter\\.range_inserts +3\\R"
+                + "list\\.change_ns +n=2 mean=200 p50=\\d+ p90=\\d+ p99=300 max=300\\R"));
+
+        assertEquals("{\"counters\":{\"adapter.range_inserts\":3},"
+                + "\"histograms\":{\"list.change_ns\":{\"count\":2,\"sum\":400,\"max\":300,"
+                + "\"p50\":" + stats.histogram("list.change_ns").percentile(0.5)
+                + ",\"p90\":300,\"p99\":300}}}", stats.toJson());
+    }
+
+    @Test
+    public void reset_keepsNamesAndZeroesValues() {
+        PerfStats stats = new PerfStats();
+        stats.counter("a").incrementAndGet();
+        stats.histogram("b\"_ns").record(42);
+        stats.reset();
+        assertEquals(0, stats.counter("a").get());
+        assertEquals(0, stats.histogram("b\"_ns").count());
+        assertEquals("{\"counters\":{\"a\":0},\"histograms\":{\"b\\\"_ns\":"
+                + "{\"count\":0,\"sum\":0,\"max\":0,\"p50\":0,\"p90\":0,\"p99\":0}}}", stats.toJson());
+    }
+
+    @Test
+    public void store_recordsWaitAndChangeTimes() throws Exception {
+        PerfStats stats = new PerfStats();
+        ItemListStore store = new ItemListStore(stats);
+        try {
+            for (int i = 0; i < 10; i++) {
+                long id = i + 1;
+                store.execute(model -> model.add(new Item(id, "x", false)));
+            }
+            store.awaitPending();
+        } finally {
+            store.close();
+        }
+        assertEquals(10, stats.histogram("list.change_ns").count());
+        assertEquals(10, stats.histogram("list.wait_ns").count());
+    }
+
+    private static void assertBetween(long low, long high, long actual) {
+        assertTrue(actual + " not in [" + low + ", " + high + "]", actual >= low && actual <= high);
+    }
+}
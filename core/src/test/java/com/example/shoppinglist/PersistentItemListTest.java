@@ -0,0 +1,78 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PersistentItemList}, compared against a plain {@link ArrayList}.
+ */
+public class PersistentItemListTest {
+    @Test
+    public void randomOperations_matchArrayList() {
+        Random random = new Random(42);
+        PersistentItemList list = PersistentItemList.empty();
+        List<Item> expected = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int operation = random.nextInt(4);
+            if (operation <= 1 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                Item item = new Item(i, "item " + i);
+                list = list.withInserted(index, item);
+                expected.add(index, item);
+            } else if (operation == 2) {
+                int index = random.nextInt(expected.size());
+                list = list.withRemoved(index);
+                expected.remove(index);
+            } else {
+                int index = random.nextInt(expected.size());
+                Item item = new Item(i, "replaced " + i);
+                list = list.withReplaced(index, item);
+                expected.set(index, item);
+            }
+            if (i % 1000 == 0) {
+                assertEquals(expected, list);
+            }
+        }
+        assertEquals(expected, list);
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), list.get(i));
+        }
+    }
+
+    @Test
+    public void changes_leaveOldVersionsUntouched() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(new Item(i, "item " + i));
+        }
+        PersistentItemList original = PersistentItemList.copyOf(items);
+        PersistentItemList changed = original.withRemoved(10).withInserted(0, new Item(100, "new"))
+                .withReplaced(50, new Item(101, "replaced"));
+
+        assertEquals(items, original);
+        assertEquals(100, changed.size());
+        assertEquals(100, changed.get(0).getId());
+    }
+
+    @Test
+    public void tree_staysBalanced() {
+        // Always appending is the worst case for an unbalanced tree.
+        PersistentItemList list = PersistentItemList.empty();
+        for (int i = 0; i < 100_000; i++) {
+            list = list.withInserted(list.size(), new Item(i, ""));
+        }
+        for (int i = 0; i < 100_000; i += 997) {
+            assertEquals(i, list.get(i).getId());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void withInserted_outOfRange() {
+        PersistentItemList.empty().withInserted(1, new Item(1, ""));
+    }
+}
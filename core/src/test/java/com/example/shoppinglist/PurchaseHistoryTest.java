@@ -0,0 +1,127 @@
+package com.example.shoppinglist;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PurchaseHistory}.
+ */
+public class PurchaseHistoryTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong time = new AtomicLong(1_700_000_000_000L);
+    private final List<PurchaseHistory> opened = new ArrayList<>();
+
+    @After
+    public void tearDown() throws InterruptedException {
+        for (PurchaseHistory history : opened) {
+            history.close();
+            history.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void suggest_ranksFrequentItemsFirst() throws IOException {
+        PurchaseHistory history = newHistory();
+        history.record("Milk");
+        history.record("Mince");
+        history.record("Mince");
+        history.record("Mushrooms");
+        history.record("Bread");
+
+        assertEquals(Arrays.asList("Mince", "Milk", "Mushrooms"), history.suggest("m", 5));
+        assertEquals(Arrays.asList("Mince", "Milk"), history.suggest("mi", 5));
+        assertEquals(Collections.singletonList("Mince"), history.suggest("M", 1));
+        assertEquals(Collections.emptyList(), history.suggest("x", 5));
+    }
+
+    @Test
+    public void suggest_prefersRecentOverOldPurchases() throws IOException {
+        PurchaseHistory history = newHistory();
+        for (int i = 0; i < 5; i++) {
+            history.record("Cheddar");
+        }
+        // A year later, two recent purchases outweigh five old ones.
+        time.addAndGet(365 * DAY);
+        history.record("Cherries");
+        history.record("Cherries");
+
+        assertEquals(Arrays.asList("Cherries", "Cheddar"), history.suggest("che", 5));
+    }
+
+    @Test
+    public void suggest_ignoresCaseAndAccents() throws IOException {
+        PurchaseHistory history = newHistory();
+        history.record("Crème fraîche");
+        assertEquals(Collections.singletonList("Crème fraîche"), history.suggest("CREME", 5));
+    }
+
+    @Test
+    public void history_survivesRestart() throws Exception {
+        PurchaseHistory history = newHistory();
+        history.record("Eggs");
+        history.record("Eggs");
+        history.record("Espresso");
+        history.close();
+        assertTrue(history.awaitTermination(5, TimeUnit.SECONDS));
+
+        PurchaseHistory reloaded = newHistory();
+        assertEquals(Arrays.asList("Eggs", "Espresso"), reloaded.suggest("e", 5));
+        reloaded.record("Espresso");
+        reloaded.record("Espresso");
+        assertEquals(Arrays.asList("Espresso", "Eggs"), reloaded.suggest("e", 5));
+    }
+
+    @Test
+    public void history_staysBounded() throws IOException {
+        PurchaseHistory history = newHistory();
+        history.record("Favourite");
+        history.record("Favourite");
+        for (int i = 0; i < PurchaseHistory.MAX_ENTRIES * 2; i++) {
+            time.addAndGet(1000);
+            history.record("item " + i);
+        }
+        assertTrue(history.size() <= PurchaseHistory.MAX_ENTRIES);
+        // The most recent entries are kept, the rare and old ones are gone.
+        assertEquals(Collections.singletonList("item " + (PurchaseHistory.MAX_ENTRIES * 2 - 1)),
+                history.suggest("item " + (PurchaseHistory.MAX_ENTRIES * 2 - 1), 1));
+        assertEquals(Collections.emptyList(), history.suggest("item 0", 5));
+    }
+
+    @Test
+    public void history_staysBoundedWithEqualScores() throws IOException {
+        // Recorded at the same moment, all entries score the same.
+        PurchaseHistory history = newHistory();
+        for (int i = 0; i <= PurchaseHistory.MAX_ENTRIES; i++) {
+            history.record("item " + i);
+        }
+        int entries = PurchaseHistory.MAX_ENTRIES + 1;
+        assertEquals(entries - (int) (entries * PurchaseHistory.EVICT_FRACTION), history.size());
+
+        // Further entries do not evict again until the history is full.
+        history.record("one more");
+        assertEquals(entries - (int) (entries * PurchaseHistory.EVICT_FRACTION) + 1, history.size());
+    }
+
+    private PurchaseHistory newHistory() throws IOException {
+        PurchaseHistory history = new PurchaseHistory(new File(folder.getRoot(), "history"), time::get);
+        opened.add(history);
+        return history;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SectionedItemList}, compared against the rows built by hand.
+ */
+public class SectionedItemListTest {
+    private static final boolean[] EXPANDED = new boolean[SectionedItemList.SECTIONS];
+
+    @Test
+    public void rows_matchListBuiltByHand() {
+        Random random = new Random(18);
+        ItemListModel model = new ItemListModel();
+        for (int round = 0; round < 300; round++) {
+            int operation = random.nextInt(5);
+            if (operation <= 1 || model.size() == 0) {
+                Item item = new Item(round + 1, "item " + round, random.nextInt(6) == 0);
+                item.setImportance(Item.ImportanceLevel.values()[random.nextInt(3)]);
+                model.add(item);
+            } else if (operation == 2) {
+                model.remove(model.get(random.nextInt(model.size())).getId());
+            } else {
+                model.setImportance(model.get(random.nextInt(model.size())).getId(),
+                        Item.ImportanceLevel.values()[random.nextInt(3)]);
+            }
+            boolean[] collapsed = new boolean[SectionedItemList.SECTIONS];
+            for (int section = 0; section < collapsed.length; section++) {
+                collapsed[section] = random.nextInt(3) == 0;
+            }
+            checkRows(model.getSnapshot(), collapsed, new SectionedItemList(model.getSnapshot(), collapsed));
+        }
+    }
+
+    @Test
+    public void withCollapsed_removesOneRangeAfterTheHeader() {
+        List<Item> items = listOf(5, 3, 4, 1);
+        SectionedItemList expanded = new SectionedItemList(items, EXPANDED);
+        SectionedItemList collapsed = expanded.withCollapsed(1, true);
+
+        int header = expanded.headerRow(1);
+        assertEquals(6, header);
+        assertEquals(header, collapsed.headerRow(1));
+        assertEquals(expanded.size() - 3, collapsed.size());
+        List<Item> expected = new ArrayList<>(expanded);
+        expected.subList(header + 1, header + 1 + expanded.sectionSize(1)).clear();
+        assertEquals(ids(expected), ids(collapsed));
+        assertTrue(((SectionHeader) collapsed.get(header)).isCollapsed());
+        assertEquals(-1, collapsed.rowOf(1, 0));
+        assertEquals(ids(expanded), ids(collapsed.withCollapsed(1, false)));
+    }
+
+    @Test
+    public void emptySections_haveNoHeader() {
+        SectionedItemList list = new SectionedItemList(listOf(0, 2, 0, 1), EXPANDED);
+        assertEquals(-1, list.headerRow(0));
+        assertEquals(0, list.headerRow(1));
+        assertEquals(-1, list.headerRow(2));
+        assertEquals(4, list.size());
+        assertEquals(SectionedItemList.SECTIONS, list.sectionAt(3));
+        assertEquals(0, list.offsetAt(3));
+        assertTrue(new SectionedItemList(new ArrayList<>(), EXPANDED).isEmpty());
+    }
+
+    @Test
+    public void headerIds_areStableIdsApartFromItemIds() {
+        for (int section = 0; section < SectionedItemList.SECTIONS; section++) {
+            long id = SectionHeader.idOf(section);
+            // -1 is RecyclerView.NO_ID; item ids are positive.
+            assertNotEquals(-1, id);
+            assertTrue(id < 0);
+            for (int other = 0; other < section; other++) {
+                assertNotEquals(SectionHeader.idOf(other), id);
+            }
+        }
+    }
+
+    private static void checkRows(List<Item> items, boolean[] collapsed, SectionedItemList list) {
+        List<Item> expected = new ArrayList<>();
+        int[] offsets = new int[SectionedItemList.SECTIONS + 1];
+        List<int[]> positions = new ArrayList<>();
+        for (int section = 0; section <= SectionedItemList.SECTIONS; section++) {
+            List<Item> members = new ArrayList<>();
+            for (Item item : items) {
+                if (SectionedItemList.sectionOf(item) == section) {
+                    members.add(item);
+                }
+            }
+            assertEquals(members.size(), list.sectionSize(section));
+            if (section < SectionedItemList.SECTIONS && !members.isEmpty()) {
+                expected.add(new SectionHeader(section, members.size(), collapsed[section]));
+                positions.add(new int[]{section, -1});
+                if (collapsed[section]) {
+                    continue;
+                }
+            }
+            for (Item member : members) {
+                expected.add(member);
+                positions.add(new int[]{section, offsets[section]++});
+            }
+        }
+        assertEquals(ids(expected), ids(list));
+        for (int row = 0; row < expected.size(); row++) {
+            int section = positions.get(row)[0];
+            int offset = positions.get(row)[1];
+            assertEquals(section, list.sectionAt(row));
+            assertEquals(offset, list.offsetAt(row));
+            if (offset >= 0) {
+                assertSame(expected.get(row), list.get(row));
+                assertEquals(row, list.rowOf(section, offset));
+            } else {
+                assertEquals(row, list.headerRow(section));
+                assertTrue(expected.get(row).hasSameContents(list.get(row)));
+            }
+        }
+    }
+
+    // A list in display order with the given number of items per section.
+    private static List<Item> listOf(int... sizes) {
+        List<Item> items = new ArrayList<>();
+        long id = 1;
+        for (int section = 0; section < sizes.length; section++) {
+            for (int i = 0; i < sizes[section]; i++) {
+                Item item = new Item(id++, "item", section == SectionedItemList.SECTIONS);
+                if (section < SectionedItemList.SECTIONS) {
+                    item.setImportance(Item.ImportanceLevel.values()[section]);
+                }
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        List<Long> ids = new ArrayList<>();
+        for (Item item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SyncClient} and {@link SyncServer}: devices sharing a list
+ * through the in-process server.
+ */
+public class SyncClientTest {
+    private final SyncServer server = new SyncServer();
+
+    // A device: its list and the client keeping it in sync.
+    private static class Device {
+        final ItemListModel model = new ItemListModel();
+        final SyncClient client;
+
+        Device(long replicaId) {
+            client = new SyncClient(replicaId);
+            model.addChangeListener(client);
+        }
+
+        void add(long id, String text, Item.ImportanceLevel importance) {
+            model.add(new Item(id, text));
+            model.setImportance(id, importance);
+        }
+
+        List<String> contents() {
+            List<String> contents = new ArrayList<>();
+            for (Item item : model.getSnapshot()) {
+                contents.add(item.getId() + " " + item.getText() + " " + item.getImportance());
+            }
+            return contents;
+        }
+    }
+
+    @Test
+    public void devicesConverge() throws IOException {
+        Device phone = new Device(1);
+        Device tablet = new Device(2);
+        phone.add(10, "Milk", Item.ImportanceLevel.IMPORTANT);
+        phone.add(11, "Bread", Item.ImportanceLevel.NORMAL);
+        tablet.add(20, "Jam", Item.ImportanceLevel.UNIMPORTANT);
+        // The blank row is a draft and stays on the tablet.
+        tablet.model.add(new Item(21, "Eg"));
+
+        phone.client.sync(phone.model, server);
+        tablet.client.sync(tablet.model, server);
+        phone.client.sync(phone.model, server);
+
+        tablet.model.remove(21);
+        assertEquals(phone.contents(), tablet.contents());
+        assertEquals(Arrays.asList("10 Milk IMPORTANT", "11 Bread NORMAL", "20 Jam UNIMPORTANT"),
+                phone.contents());
+
+        tablet.model.setText(11, "Rye bread");
+        tablet.model.setImportance(10, Item.ImportanceLevel.UNIMPORTANT);
+        phone.model.remove(20);
+        tablet.client.sync(tablet.model, server);
+        phone.client.sync(phone.model, server);
+        tablet.client.sync(tablet.model, server);
+
+        assertEquals(Arrays.asList("11 Rye bread NORMAL", "10 Milk UNIMPORTANT"), phone.contents());
+        assertEquals(phone.contents(), tablet.contents());
+        assertEquals(0, phone.client.pendingChanges());
+        assertEquals(0, tablet.client.pendingChanges());
+    }
+
+    @Test
+    public void concurrentEdits_mergeTheSameWayInAnyOrder() throws IOException {
+        List<String> first = editConcurrently(true);
+        List<String> second = editConcurrently(false);
+        assertEquals(first, second);
+        // The text and the importance are merged separately.
+        assertEquals(Arrays.asList("1 Oat milk NORMAL"), first);
+    }
+
+    // Both devices change the same item while offline, then sync in the given order.
+    private List<String> editConcurrently(boolean phoneFirst) throws IOException {
+        SyncServer server = new SyncServer();
+        Device phone = new Device(1);
+        Device tablet = new Device(2);
+        phone.add(1, "Milk", Item.ImportanceLevel.IMPORTANT);
+        phone.client.sync(phone.model, server);
+        tablet.client.sync(tablet.model, server);
+
+        phone.model.setText(1, "Whole milk");
+        tablet.model.setText(1, "Oat milk");
+        tablet.model.setImportance(1, Item.ImportanceLevel.NORMAL);
+
+        Device a = phoneFirst ? phone : tablet;
+        Device b = phoneFirst ? tablet : phone;
+        a.client.sync(a.model, server);
+        b.client.sync(b.model, server);
+        a.client.sync(a.model, server);
+        assertEquals(a.contents(), b.contents());
+        return a.contents();
+    }
+
+    @Test
+    public void removalWinsOverConcurrentEdit() throws IOException {
+        Device phone = new Device(1);
+        Device tablet = new Device(2);
+        phone.add(1, "Milk", Item.ImportanceLevel.NORMAL);
+        phone.client.sync(phone.model, server);
+        tablet.client.sync(tablet.model, server);
+
+        phone.model.remove(1);
+        // Edited later, but the item has been bought already.
+        tablet.model.setText(1, "Milk 2l");
+        tablet.model.setText(1, "Milk 3l");
+        tablet.client.sync(tablet.model, server);
+        phone.client.sync(phone.model, server);
+        tablet.client.sync(tablet.model, server);
+
+        assertTrue(phone.contents().isEmpty());
+        assertTrue(tablet.contents().isEmpty());
+    }
+
+    @Test
+    public void itemsCreatedAtTheSameInstant_stayApart() throws IOException {
+        Device phone = new Device(1);
+        Device tablet = new Device(2);
+        long phoneId = new ItemIdGenerator(1, () -> 1000L).nextId();
+        long tabletId = new ItemIdGenerator(2, () -> 1000L).nextId();
+        phone.add(phoneId, "Milk", Item.ImportanceLevel.NORMAL);
+        tablet.add(tabletId, "Eggs", Item.ImportanceLevel.NORMAL);
+
+        phone.client.sync(phone.model, server);
+        tablet.client.sync(tablet.model, server);
+        phone.client.sync(phone.model, server);
+
+        assertEquals(2, phone.model.size());
+        assertEquals(new HashSet<>(phone.contents()), new HashSet<>(tablet.contents()));
+        assertTrue(phone.contents().contains(tabletId + " Eggs NORMAL"));
+    }
+
+    @Test
+    public void deltasStaySmall() throws IOException {
+        Device phone = new Device(1);
+        Device tablet = new Device(2);
+        for (int i = 1; i <= 1000; i++) {
+            phone.add(i, "Item number " + i, Item.ImportanceLevel.NORMAL);
+        }
+        phone.client.sync(phone.model, server);
+        tablet.client.sync(tablet.model, server);
+        assertEquals(1000, tablet.model.size());
+        long fullList = server.bytesSent();
+
+        long received = server.bytesReceived();
+        long sent = server.bytesSent();
+        tablet.model.setImportance(500, Item.ImportanceLevel.IMPORTANT);
+        tablet.client.sync(tablet.model, server);
+        phone.client.sync(phone.model, server);
+
+        assertEquals("500 Item number 500 IMPORTANT", phone.contents().get(0));
+        // One field of one item: a few bytes each way, compared to kilobytes for the full list.
+        long delta = server.bytesReceived() - received + server.bytesSent() - sent;
+        assertTrue("delta " + delta + " bytes", delta < 40);
+        assertTrue("full list " + fullList + " bytes", fullList > 50 * delta);
+    }
+
+    @Test
+    public void failedExchange_keepsChangesForNextSync() throws IOException {
+        Device phone = new Device(1);
+        phone.add(1, "Milk", Item.ImportanceLevel.NORMAL);
+        try {
+            phone.client.sync(phone.model, request -> {
+                throw new IOException("No network");
+            });
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(1, phone.client.pendingChanges());
+
+        phone.client.sync(phone.model, server);
+        assertEquals(0, phone.client.pendingChanges());
+        assertEquals(1, server.size());
+    }
+
+    @Test
+    public void damagedMessages_areRejected() {
+        Device phone = new Device(1);
+        phone.add(1, "Milk", Item.ImportanceLevel.NORMAL);
+        byte[] request = phone.client.createRequest();
+        for (int length = 0; length < request.length; length++) {
+            try {
+                server.exchange(Arrays.copyOf(request, length));
+                fail("Accepted " + length + " of " + request.length + " bytes");
+            } catch (IOException expected) {
+            }
+        }
+        assertEquals(0, server.size());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.shoppinglist;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TextItemWriter} and {@link TextItemReader}.
+ */
+public class TextItemReaderTest {
+
+    @Test
+    public void roundTrip_keepsEverything() throws IOException {
+        List<Item> items = BinaryItemReaderTest.randomItems(new Random(8), 5000);
+        char[] longText = new char[ChannelInput.BUFFER_SIZE + 11];
+        Arrays.fill(longText, 'ß');
+        items.add(new Item(7, new String(longText), false));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ItemWriter writer = new TextItemWriter(Channels.newChannel(out))) {
+            for (Item item : items) {
+                writer.write(item);
+            }
+        }
+        byte[] bytes = out.toByteArray();
+        assertEquals(BinaryItemReaderTest.describe(items),
+                BinaryItemReaderTest.describe(readAll(new BinaryItemReaderTest.TrickleChannel(bytes, 13))));
+    }
+
+    @Test
+    public void plainLists_getNewIds() throws IOException {
+        String text = "#2 pencils\r\nMilk\r\n\r\n  Bread  \n42\tIMPORTANT\t\tCoffee\nEggs";
+        List<Item> items = readAll(channel(text));
+
+        assertEquals(Arrays.asList(
+                "1000|#2 pencils|NORMAL|false|false",
+                "1001|Milk|NORMAL|false|false",
+                "1002|Bread|NORMAL|false|false",
+                "42|Coffee|IMPORTANT|false|false",
+                "1003|Eggs|NORMAL|false|false"), BinaryItemReaderTest.describe(items));
+    }
+
+    @Test
+    public void comments_areOnlySkippedAfterTheHeader() throws IOException {
+        String text = TextItemWriter.HEADER.replace("\n", "\r\n") + "# Saturday\n7\tNORMAL\t\tMilk\n";
+        assertEquals(Arrays.asList("7|Milk|NORMAL|false|false"),
+                BinaryItemReaderTest.describe(readAll(channel(text))));
+    }
+
+    @Test
+    public void badLine_reportsItsNumber() {
+        try {
+            readAll(channel("Milk\n1\tVERY\t\tCoffee\n"));
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2:"));
+        }
+    }
+
+    private static ReadableByteChannel channel(String text) {
+        return new BinaryItemReaderTest.TrickleChannel(text.getBytes(StandardCharsets.UTF_8), 4);
+    }
+
+    private static List<Item> readAll(ReadableByteChannel channel) throws IOException {
+        AtomicLong ids = new AtomicLong(1000);
+        List<Item> items = new ArrayList<>();
+        try (ItemReader reader = new TextItemReader(channel, ids::getAndIncrement)) {
+            for (Item item = reader.read(); item != null; item = reader.read()) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+}
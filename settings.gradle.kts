@@ -15,3 +15,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "ShoppingList"
 include(":app")
+include(":core")